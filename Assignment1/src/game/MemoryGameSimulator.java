@@ -0,0 +1,284 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import util.ArrayBag;
+
+/**
+ * <p>A headless Monte Carlo engine for the memory game.&nbsp; Boards are dealt the same way
+ *   <code>MemoryGame</code> deals them (each symbol is added to an <code>ArrayBag</code> twice and
+ *   the tiles are filled with <code>removeRandom</code>), and each game is then played by a simulated
+ *   player with perfect memory: if a matching pair has been seen it is taken, otherwise an unseen
+ *   tile is turned over, followed by its match if that is known or by another unseen tile.</p>
+ * <p>Games are split between workers in a <code>ForkJoinPool</code>.&nbsp; Every worker has its own
+ *   random number generator and reuses a single bag and board for all of its games, so the workers
+ *   share nothing while they run.</p>
+ * <p>Usage:</p>
+ * <pre>
+ * java game.MemoryGameSimulator [--games n] [--threads n] [--rows n] [--cols n] [--seed n]
+ * </pre>
+ */
+public class MemoryGameSimulator {
+
+	private static final String[] SYMBOLS = { "Fish", "Unicorn", "Squirrel", "Dog", "Elephant", "Chimp",
+			"Gopher", "Rhino", "Duck", "Cougar" };
+
+	private final int tiles;
+	private final String[] symbols;
+	private final Map<String, Integer> symbolIndex;
+
+	/**
+	 * Create a simulator for a board of the given size.
+	 * @param rows The number of rows of tiles.
+	 * @param cols The number of columns of tiles.
+	 * @throws IllegalArgumentException If the board does not have an even, positive number of tiles.
+	 */
+	public MemoryGameSimulator(int rows, int cols) {
+		this.tiles = rows * cols;
+		if (rows <= 0 || cols <= 0 || tiles % 2 != 0) {
+			throw new IllegalArgumentException("The board must have an even number of tiles: " + rows + "x" + cols);
+		}
+		this.symbols = new String[tiles / 2];
+		this.symbolIndex = new HashMap<String, Integer>();
+		for (int i = 0; i < symbols.length; i++) {
+			symbols[i] = i < SYMBOLS.length ? SYMBOLS[i] : "Symbol" + i;
+			symbolIndex.put(symbols[i], i);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		long games = 1000000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int rows = 4;
+		int cols = 5;
+		long seed = System.nanoTime();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("--games")) {
+				games = Long.parseLong(args[i + 1]);
+			} else if (args[i].equals("--threads")) {
+				threads = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("--rows")) {
+				rows = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("--cols")) {
+				cols = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("--seed")) {
+				seed = Long.parseLong(args[i + 1]);
+			}
+		}
+		System.out.println(new MemoryGameSimulator(rows, cols).run(games, threads, seed));
+	}
+
+	/**
+	 * Simulate a number of games in parallel.
+	 * @param games The number of games to simulate.
+	 * @param threads The number of workers.
+	 * @param seed The seed from which each worker's random number generator is derived.
+	 * @return The combined results of all the workers.
+	 */
+	public Result run(long games, int threads, long seed) throws Exception {
+		threads = (int) Math.max(1, Math.min(threads, games));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			long start = System.nanoTime();
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (int i = 0; i < threads; i++) {
+				long share = games / threads + (i < games % threads ? 1 : 0);
+				futures.add(pool.submit(new Worker(share, new Random(seed + i))));
+			}
+			Result total = new Result();
+			for (Future<Result> future : futures) {
+				total.add(future.get());
+			}
+			total.elapsedNanos = System.nanoTime() - start;
+			total.threads = threads;
+			return total;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Deal a board: add each symbol to the bag twice and fill the tiles with removeRandom, as
+	 * <code>MemoryGame</code> does.
+	 * @param bag An empty bag; it is empty again when this method returns.
+	 * @param board The tiles to be filled.
+	 */
+	public void deal(ArrayBag<String> bag, String[] board) {
+		for (int i = 0; i < symbols.length; i++) {
+			bag.add(symbols[i]);
+			bag.add(symbols[i]);
+		}
+		for (int i = 0; i < board.length; i++) {
+			board[i] = bag.removeRandom();
+		}
+	}
+
+	/**
+	 * Play a dealt board with a perfect-memory player.
+	 * @param board A dealt board.
+	 * @param random Chooses which unseen tile to turn over.
+	 * @param unseen Work space of board.length entries.
+	 * @param seen Work space of board.length / 2 entries.
+	 * @return The number of turns (pairs of tiles turned over) needed to match every pair.
+	 */
+	public int play(String[] board, Random random, int[] unseen, boolean[] seen) {
+		int unseenCount = board.length;
+		for (int i = 0; i < unseenCount; i++) {
+			unseen[i] = i;
+		}
+		for (int i = 0; i < seen.length; i++) {
+			seen[i] = false;
+		}
+		// Pairs whose two tiles have both been seen but not yet matched.
+		int knownPairs = 0;
+		int matched = 0;
+		int turns = 0;
+		while (matched < seen.length) {
+			turns++;
+			if (knownPairs > 0) {
+				knownPairs--;
+				matched++;
+				continue;
+			}
+			int a = symbolIndex.get(board[takeUnseen(unseen, unseenCount--, random)]);
+			if (seen[a]) {
+				seen[a] = false;
+				matched++;
+				continue;
+			}
+			int b = symbolIndex.get(board[takeUnseen(unseen, unseenCount--, random)]);
+			if (a == b) {
+				matched++;
+			} else {
+				seen[a] = true;
+				if (seen[b]) {
+					seen[b] = false;
+					knownPairs++;
+				} else {
+					seen[b] = true;
+				}
+			}
+		}
+		return turns;
+	}
+
+	// Removes a random tile from the first 'count' entries of unseen and returns it.
+	private static int takeUnseen(int[] unseen, int count, Random random) {
+		int i = random.nextInt(count);
+		int tile = unseen[i];
+		unseen[i] = unseen[count - 1];
+		return tile;
+	}
+
+	private class Worker implements Callable<Result> {
+
+		private final long games;
+		private final Random random;
+
+		public Worker(long games, Random random) {
+			this.games = games;
+			this.random = random;
+		}
+
+		public Result call() {
+			ArrayBag<String> bag = new ArrayBag<String>(tiles, random);
+			String[] board = new String[tiles];
+			int[] unseen = new int[tiles];
+			boolean[] seen = new boolean[tiles / 2];
+			Result result = new Result();
+			long allocatedBefore = allocatedBytes();
+			for (long game = 0; game < games; game++) {
+				long start = System.nanoTime();
+				deal(bag, board);
+				result.dealNanos += System.nanoTime() - start;
+				result.record(play(board, random, unseen, seen));
+			}
+			long allocatedAfter = allocatedBytes();
+			result.allocatedBytes = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+			return result;
+		}
+	}
+
+	// Bytes allocated by the current thread, or -1 if the JVM cannot report it.
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The results of a simulation.
+	 */
+	public static class Result {
+
+		long games;
+		long totalTurns;
+		int minTurns = Integer.MAX_VALUE;
+		int maxTurns;
+		long dealNanos;
+		long allocatedBytes;
+		long elapsedNanos;
+		int threads;
+
+		void record(int turns) {
+			games++;
+			totalTurns += turns;
+			minTurns = Math.min(minTurns, turns);
+			maxTurns = Math.max(maxTurns, turns);
+		}
+
+		void add(Result other) {
+			games += other.games;
+			totalTurns += other.totalTurns;
+			minTurns = Math.min(minTurns, other.minTurns);
+			maxTurns = Math.max(maxTurns, other.maxTurns);
+			dealNanos += other.dealNanos;
+			allocatedBytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+		}
+
+		public long getGames() {
+			return games;
+		}
+
+		public double getGamesPerSecond() {
+			return elapsedNanos == 0 ? 0.0 : games * 1e9 / elapsedNanos;
+		}
+
+		public double getAverageTurns() {
+			return games == 0 ? 0.0 : (double) totalTurns / games;
+		}
+
+		public double getDealNanosPerGame() {
+			return games == 0 ? 0.0 : (double) dealNanos / games;
+		}
+
+		/**
+		 * Obtain the average number of bytes allocated per game by the workers.
+		 * @return Bytes allocated per game, or -1 if the JVM cannot report allocations.
+		 */
+		public double getBytesPerGame() {
+			return games == 0 || allocatedBytes < 0 ? -1 : (double) allocatedBytes / games;
+		}
+
+		public String toString() {
+			return String.format("games=%d threads=%d elapsed=%.3fs games/s=%.0f turns(avg/min/max)=%.2f/%d/%d"
+					+ " deal=%.0fns/game memory=%.1fB/game", games, threads, elapsedNanos / 1e9,
+					getGamesPerSecond(), getAverageTurns(), games == 0 ? 0 : minTurns, maxTurns,
+					getDealNanosPerGame(), getBytesPerGame());
+		}
+	}
+}
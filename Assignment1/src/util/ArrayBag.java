@@ -9,15 +9,27 @@ public class ArrayBag<E> implements Bag<E> {
 	private final int DEFAULT_CAPACITY = 10;
 	private E[] bag;
 	private int size;
+	private Random random;
 	
 	public ArrayBag() {
 		this.bag = (E[]) new Object[DEFAULT_CAPACITY];
 		this.size = 0;
+		this.random = new Random();
 	}
 	
 	public ArrayBag(int capacity) {
+		this(capacity, new Random());
+	}
+	
+	/**
+	 * Create a bag that uses the given generator to choose the items returned by removeRandom.
+	 * @param capacity The initial capacity of the bag.
+	 * @param random The random number generator; it should not be shared between threads.
+	 */
+	public ArrayBag(int capacity, Random random) {
 		this.bag = (E[]) new Object[capacity];
 		this.size = 0;
+		this.random = random;
 	}
 	
 	public void add(E item) {
@@ -92,7 +104,6 @@ public class ArrayBag<E> implements Bag<E> {
 		if (isEmpty()) {
 			throw new BagException();
 		} else {
-			Random random = new Random();
 			int index = random.nextInt(size());
 			E value = bag[index];
 			bag[index] = bag[size() - 1];
@@ -105,6 +116,11 @@ public class ArrayBag<E> implements Bag<E> {
 		return this.size;
 	}
 
+	// The number of items the backing array can hold before it must grow.
+	int capacity() {
+		return bag.length;
+	}
+
 	public Bag<E> union(Bag<E> other) {
 		Bag<E> bag = new ArrayBag();
 		bag.addAll(other);
@@ -0,0 +1,34 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A JDK Flight Recorder event emitted by <code>InstrumentedBag</code> for an operation that took
+ * at least the bag's configured threshold.&nbsp; The decorator applies the threshold itself, so the
+ * event's own threshold is zero.
+ */
+@Name("util.BagOperation")
+@Label("Slow Bag Operation")
+@Category({ "COMP251", "Bag" })
+@Description("A Bag operation that took longer than the configured threshold")
+@Threshold("0 ms")
+final class BagOperationEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Bag Type")
+	String bagType;
+
+	@Label("Size")
+	@Description("The number of items in the bag after the operation")
+	int size;
+
+	@Label("Array Growth Events")
+	int growthEvents;
+}
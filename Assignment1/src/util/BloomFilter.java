@@ -0,0 +1,92 @@
+package util;
+
+/**
+ * <p>A Bloom filter: a fixed-size bit set that records which items have been added and answers
+ *   "definitely not added" or "possibly added".&nbsp; There are no false negatives, and the false
+ *   positive rate stays close to the configured rate as long as no more than the expected number of
+ *   items are added.</p>
+ * <p>Items are hashed with <code>hashCode()</code> (a <code>null</code> item hashes to zero), so
+ *   equal items always map to the same bits.</p>
+ */
+public class BloomFilter<E> {
+
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	/**
+	 * Create an empty filter.
+	 * @param expectedItems The number of items the filter is sized for.
+	 * @param falsePositiveRate The desired probability that mightContain returns true for an item
+	 *                          that was never added (between 0 and 1, exclusive).
+	 */
+	public BloomFilter(int expectedItems, double falsePositiveRate) {
+		if (falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+		}
+		int n = Math.max(1, expectedItems);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		m = Math.max(64, Math.min(m, (long) Integer.MAX_VALUE * Long.SIZE));
+		this.bits = new long[(int) ((m + Long.SIZE - 1) / Long.SIZE)];
+		this.bitCount = (long) bits.length * Long.SIZE;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+	}
+
+	/**
+	 * Record an item in this filter.
+	 * @param item An item to be added.
+	 */
+	public void add(E item) {
+		long h1 = hash(item);
+		long h2 = Long.rotateLeft(h1, 32) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long index = index(h1, h2, i);
+			bits[(int) (index >>> 6)] |= 1L << index;
+		}
+	}
+
+	/**
+	 * Determine if an item might have been added to this filter.
+	 * @param item An item to be checked.
+	 * @return <code>false</code> if the item was definitely never added or <code>true</code> if it may
+	 *         have been added.
+	 */
+	public boolean mightContain(E item) {
+		long h1 = hash(item);
+		long h2 = Long.rotateLeft(h1, 32) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long index = index(h1, h2, i);
+			if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remove every item from this filter.
+	 */
+	public void clear() {
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = 0;
+		}
+	}
+
+	// Double hashing in 64 bits: the i-th probe is h1 + i * h2, made non-negative by dropping the low
+	// bit so that every bit of a filter larger than 2^32 bits can be addressed.
+	private long index(long h1, long h2, int i) {
+		return ((h1 + i * h2) >>> 1) % bitCount;
+	}
+
+	// Spreads hashCode() over 64 bits (the MurmurHash3 finalizer) so that the hash and its rotation
+	// used for double hashing are independent enough.
+	private static long hash(Object item) {
+		long h = item == null ? 0 : item.hashCode();
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
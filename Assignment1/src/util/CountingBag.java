@@ -0,0 +1,279 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * <p>A <code>Bag</code> that stores each distinct item once together with the number of copies of
+ *   it in the bag.&nbsp; Memory use and the cost of <code>contains</code> depend on the number of
+ *   distinct items rather than the total number of items, which suits bags dominated by a few
+ *   repeated values.</p>
+ * <p><code>removeRandom</code> remains uniform over all copies: a Fenwick (binary indexed) tree of
+ *   the counts lets a random copy be located through cumulative counts in O(log d) time, where d is
+ *   the number of distinct items.</p>
+ */
+public class CountingBag<E> implements Bag<E> {
+
+	private static final int DEFAULT_CAPACITY = 10;
+	private E[] items;
+	private int[] counts;
+	private int[] tree;
+	private int distinct;
+	private int size;
+	private Map<E, Integer> slots;
+	private Random random;
+
+	public CountingBag() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	public CountingBag(int capacity) {
+		capacity = Math.max(1, capacity);
+		this.items = (E[]) new Object[capacity];
+		this.counts = new int[capacity];
+		this.tree = new int[capacity + 1];
+		this.slots = new HashMap<E, Integer>();
+		this.random = new Random();
+		this.distinct = 0;
+		this.size = 0;
+	}
+
+	public void add(E item) {
+		addCopies(item, 1);
+	}
+
+	/**
+	 * Add several copies of an item to this bag.
+	 * @param item An item to be added.
+	 * @param copies The number of copies to add.
+	 * @throws IllegalArgumentException If copies is negative.
+	 */
+	public void addCopies(E item, int copies) {
+		if (copies < 0) {
+			throw new IllegalArgumentException("copies must not be negative: " + copies);
+		}
+		if (copies == 0) {
+			return;
+		}
+		Integer slot = slots.get(item);
+		if (slot == null) {
+			if (distinct == items.length) {
+				grow();
+			}
+			slot = distinct++;
+			items[slot] = item;
+			slots.put(item, slot);
+		}
+		counts[slot] += copies;
+		update(slot, copies);
+		size += copies;
+	}
+
+	public void addAll(Bag<E> other) {
+		if (other instanceof CountingBag) {
+			CountingBag<E> bag = (CountingBag<E>) other;
+			for (int i = 0; i < bag.distinct; i++) {
+				addCopies(bag.items[i], bag.counts[i]);
+			}
+		} else {
+			Iterator<E> iterator = other.iterator();
+			while (iterator.hasNext()) {
+				add(iterator.next());
+			}
+		}
+	}
+
+	public boolean contains(E item) {
+		return slots.containsKey(item);
+	}
+
+	/**
+	 * Determine the number of copies of an item in this bag.
+	 * @param item An item to be counted.
+	 * @return The number of copies of the item (zero if it is not in the bag).
+	 */
+	public int count(E item) {
+		Integer slot = slots.get(item);
+		return slot == null ? 0 : counts[slot];
+	}
+
+	/**
+	 * Determine the number of distinct items in this bag.
+	 * @return The number of different items in this bag.
+	 */
+	public int distinctSize() {
+		return distinct;
+	}
+
+	public boolean equals(Bag<E> other) {
+		if (other.size() != this.size()) {
+			return false;
+		}
+		Map<E, Integer> otherCounts = new HashMap<E, Integer>();
+		Iterator<E> iterator = other.iterator();
+		while (iterator.hasNext()) {
+			E item = iterator.next();
+			Integer count = otherCounts.get(item);
+			otherCounts.put(item, count == null ? 1 : count + 1);
+		}
+		if (otherCounts.size() != distinct) {
+			return false;
+		}
+		for (int i = 0; i < distinct; i++) {
+			Integer count = otherCounts.get(items[i]);
+			if (count == null || count != counts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public Iterator<E> iterator() {
+		return new CountingBagIterator();
+	}
+
+	public E remove(E item) throws NoSuchElementException {
+		Integer slot = slots.get(item);
+		if (slot == null) {
+			throw new NoSuchElementException();
+		}
+		return removeCopy(slot);
+	}
+
+	public E removeRandom() throws BagException {
+		if (isEmpty()) {
+			throw new BagException();
+		} else {
+			return removeCopy(find(random.nextInt(size)));
+		}
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public Bag<E> union(Bag<E> other) {
+		CountingBag<E> bag = new CountingBag<E>(distinct);
+		bag.addAll(this);
+		bag.addAll(other);
+		return bag;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		String prefix = " ";
+		for (Iterator<E> it = this.iterator(); it.hasNext();) {
+			sb.append(prefix).append(it.next());
+			prefix = ", ";
+		}
+		return sb.append(' ').append('}').toString();
+	}
+
+	// Removes one copy of the item in the given slot.  A slot whose count drops to zero is filled with
+	// the last slot so that the occupied slots stay contiguous.
+	private E removeCopy(int slot) {
+		E value = items[slot];
+		counts[slot]--;
+		update(slot, -1);
+		size--;
+		if (counts[slot] == 0) {
+			int last = distinct - 1;
+			slots.remove(value);
+			if (slot != last) {
+				items[slot] = items[last];
+				counts[slot] = counts[last];
+				update(slot, counts[last]);
+				update(last, -counts[last]);
+				slots.put(items[slot], slot);
+			}
+			items[last] = null;
+			counts[last] = 0;
+			distinct--;
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void grow() {
+		E[] tempItems = (E[]) new Object[items.length * 2];
+		int[] tempCounts = new int[items.length * 2];
+		for (int i = 0; i < distinct; i++) {
+			tempItems[i] = items[i];
+			tempCounts[i] = counts[i];
+		}
+		items = tempItems;
+		counts = tempCounts;
+		// Rebuild the Fenwick tree in O(d) for the new capacity.
+		tree = new int[items.length + 1];
+		for (int i = 1; i < tree.length; i++) {
+			tree[i] += counts[i - 1];
+			int parent = i + (i & -i);
+			if (parent < tree.length) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+
+	// Adds delta to the count for a slot in the Fenwick tree.
+	private void update(int slot, int delta) {
+		for (int i = slot + 1; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	// Finds the slot holding the copy with the given 0-based rank, i.e. the first slot whose
+	// cumulative count exceeds rank.
+	private int find(int rank) {
+		int position = 0;
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next < tree.length && tree[next] <= rank) {
+				position = next;
+				rank -= tree[next];
+			}
+		}
+		return position;
+	}
+
+	private class CountingBagIterator implements Iterator<E> {
+
+		int slot;
+		int copy;
+
+		public CountingBagIterator() {
+			this.slot = 0;
+			this.copy = 0;
+		}
+
+		public boolean hasNext() {
+			return slot < distinct;
+		}
+
+		public E next() {
+			if (hasNext()) {
+				E value = items[slot];
+				copy++;
+				if (copy >= counts[slot]) {
+					slot++;
+					copy = 0;
+				}
+				return value;
+			} else {
+				throw new NoSuchElementException();
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>A <code>Bag</code> decorator that keeps a <code>BloomFilter</code> of the wrapped bag's items so
+ *   that <code>contains</code> calls for items that are not in the bag are answered in O(1) time,
+ *   without scanning the bag.</p>
+ * <p>The filter is updated on every <code>add</code>.&nbsp; A Bloom filter cannot forget items, so
+ *   removals leave it stale (still correct, but with more false positives); once the number of
+ *   removals since the filter was built exceeds the configured fraction of the bag's size, or the
+ *   bag has grown past the size the filter was built for, the filter is rebuilt from the bag's
+ *   contents the next time it is consulted.</p>
+ * <p>The wrapped bag must only be modified through the decorator.</p>
+ */
+public class FilteredBag<E> implements Bag<E> {
+
+	private static final double DEFAULT_STALE_FRACTION = 0.25;
+
+	private final Bag<E> bag;
+	private final int expectedSize;
+	private final double falsePositiveRate;
+	private final double staleFraction;
+	private BloomFilter<E> filter;
+	private int filterCapacity;
+	private int removalsSinceRebuild;
+
+	private long shortCircuits;
+	private long confirmedHits;
+	private long falsePositives;
+	private long rebuilds;
+
+	public FilteredBag(Bag<E> bag, int expectedSize, double falsePositiveRate) {
+		this(bag, expectedSize, falsePositiveRate, DEFAULT_STALE_FRACTION);
+	}
+
+	/**
+	 * Create a filtered view of a bag.&nbsp; Any items already in the bag are added to the filter.
+	 * @param bag The bag to be wrapped.
+	 * @param expectedSize The number of items the filter is sized for.
+	 * @param falsePositiveRate The desired false positive rate of the filter.
+	 * @param staleFraction The filter is rebuilt once the removals since it was built exceed this
+	 *                      fraction of the bag's size.
+	 */
+	public FilteredBag(Bag<E> bag, int expectedSize, double falsePositiveRate, double staleFraction) {
+		this.bag = bag;
+		this.expectedSize = Math.max(1, expectedSize);
+		this.falsePositiveRate = falsePositiveRate;
+		this.staleFraction = staleFraction;
+		rebuild();
+		this.rebuilds = 0;
+	}
+
+	public void add(E item) {
+		bag.add(item);
+		filter.add(item);
+	}
+
+	public void addAll(Bag<E> other) {
+		Iterator<E> iterator = other.iterator();
+		while (iterator.hasNext()) {
+			add(iterator.next());
+		}
+	}
+
+	public boolean contains(E item) {
+		if (isStale()) {
+			rebuild();
+		}
+		if (!filter.mightContain(item)) {
+			shortCircuits++;
+			return false;
+		}
+		if (bag.contains(item)) {
+			confirmedHits++;
+			return true;
+		}
+		falsePositives++;
+		return false;
+	}
+
+	public boolean equals(Bag<E> other) {
+		return bag.equals(other);
+	}
+
+	public boolean isEmpty() {
+		return bag.isEmpty();
+	}
+
+	public Iterator<E> iterator() {
+		return bag.iterator();
+	}
+
+	public E remove(E item) throws NoSuchElementException {
+		if (isStale()) {
+			rebuild();
+		}
+		if (!filter.mightContain(item)) {
+			shortCircuits++;
+			throw new NoSuchElementException();
+		}
+		E value;
+		try {
+			value = bag.remove(item);
+		} catch (NoSuchElementException e) {
+			falsePositives++;
+			throw e;
+		}
+		confirmedHits++;
+		removalsSinceRebuild++;
+		return value;
+	}
+
+	public E removeRandom() throws BagException {
+		E value = bag.removeRandom();
+		removalsSinceRebuild++;
+		return value;
+	}
+
+	public int size() {
+		return bag.size();
+	}
+
+	public Bag<E> union(Bag<E> other) {
+		return new FilteredBag<E>(bag.union(other), expectedSize, falsePositiveRate, staleFraction);
+	}
+
+	public String toString() {
+		return bag.toString();
+	}
+
+	/**
+	 * Obtain the number of lookups (<code>contains</code> and <code>remove</code> calls) the filter
+	 * answered without consulting the bag.
+	 * @return The number of lookups for items that were definitely not in the bag.
+	 */
+	public long getShortCircuitCount() {
+		return shortCircuits;
+	}
+
+	/**
+	 * Obtain the number of lookups (<code>contains</code> and <code>remove</code> calls) that found
+	 * their item.
+	 * @return The number of lookups that passed the filter and were found in the bag.
+	 */
+	public long getConfirmedHitCount() {
+		return confirmedHits;
+	}
+
+	/**
+	 * Obtain the number of lookups (<code>contains</code> and <code>remove</code> calls) that passed
+	 * the filter but were not in the bag.
+	 * @return The number of false positives.
+	 */
+	public long getFalsePositiveCount() {
+		return falsePositives;
+	}
+
+	/**
+	 * Obtain the observed false positive rate: the fraction of lookups for absent items that the
+	 * filter failed to reject.&nbsp; <code>contains</code> and <code>remove</code> calls are both
+	 * counted, so the rate is not biased by which of them is used.
+	 * @return The observed false positive rate, or 0 if there have been no lookups for absent items.
+	 */
+	public double getObservedFalsePositiveRate() {
+		long misses = falsePositives + shortCircuits;
+		return misses == 0 ? 0.0 : (double) falsePositives / misses;
+	}
+
+	/**
+	 * Obtain the number of times the filter has been rebuilt since this decorator was created.
+	 * @return The number of rebuilds.
+	 */
+	public long getRebuildCount() {
+		return rebuilds;
+	}
+
+	private boolean isStale() {
+		int size = bag.size();
+		return removalsSinceRebuild > staleFraction * Math.max(1, size) || size > filterCapacity;
+	}
+
+	private void rebuild() {
+		filterCapacity = Math.max(expectedSize, 2 * bag.size());
+		filter = new BloomFilter<E>(filterCapacity, falsePositiveRate);
+		Iterator<E> iterator = bag.iterator();
+		while (iterator.hasNext()) {
+			filter.add(iterator.next());
+		}
+		removalsSinceRebuild = 0;
+		rebuilds++;
+	}
+}
@@ -0,0 +1,253 @@
+package util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A <code>Bag</code> decorator that counts the operations performed on another bag and reports
+ *   slow operations to JDK Flight Recorder.&nbsp; The counters are <code>LongAdder</code>s, so they
+ *   are cheap to update even when the bag is shared between threads.</p>
+ * <p>In addition to per-operation counts the decorator records:</p>
+ * <ul>
+ *   <li>for an <code>ArrayBag</code>, the number of items examined by unsuccessful
+ *     <code>contains</code> calls (each one is a full scan);</li>
+ *   <li>for an <code>ArrayBag</code>, the number of times its array grew and the number of slots
+ *     and bytes copied while growing.</li>
+ * </ul>
+ * <p>Any operation that takes at least the configured threshold is counted by
+ *   <code>getSlowOperationCount()</code> and emits a <code>util.BagOperation</code>
+ *   Flight Recorder event whose duration is the operation's.&nbsp; The wrapped bag should only be
+ *   modified through the decorator.</p>
+ */
+public class InstrumentedBag<E> implements Bag<E> {
+
+	// Size of an object reference in the backing array, assuming compressed references.
+	private static final int REFERENCE_BYTES = 4;
+	private static final long DEFAULT_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Bag<E> bag;
+	private final long thresholdNanos;
+
+	private final LongAdder adds = new LongAdder();
+	private final LongAdder containsCalls = new LongAdder();
+	private final LongAdder containsMisses = new LongAdder();
+	private final LongAdder itemsScanned = new LongAdder();
+	private final LongAdder removes = new LongAdder();
+	private final LongAdder randomRemoves = new LongAdder();
+	private final LongAdder growthEvents = new LongAdder();
+	private final LongAdder slotsCopied = new LongAdder();
+	private final LongAdder slowOperations = new LongAdder();
+
+	public InstrumentedBag(Bag<E> bag) {
+		this(bag, DEFAULT_THRESHOLD_NANOS);
+	}
+
+	/**
+	 * Create a decorator for a bag.
+	 *
+	 * @param bag The bag to be instrumented.
+	 * @param thresholdNanos Operations that take at least this many nanoseconds emit a Flight Recorder event.
+	 */
+	public InstrumentedBag(Bag<E> bag, long thresholdNanos) {
+		this.bag = bag;
+		this.thresholdNanos = thresholdNanos;
+	}
+
+	public void add(E item) {
+		int capacity = capacity();
+		BagOperationEvent event = begin();
+		long start = System.nanoTime();
+		bag.add(item);
+		long elapsed = System.nanoTime() - start;
+		adds.increment();
+		finish(event, "add", elapsed, recordGrowth(capacity));
+	}
+
+	public void addAll(Bag<E> other) {
+		int capacity = capacity();
+		int before = bag.size();
+		BagOperationEvent event = begin();
+		long start = System.nanoTime();
+		bag.addAll(other);
+		long elapsed = System.nanoTime() - start;
+		adds.add(bag.size() - before);
+		finish(event, "addAll", elapsed, recordGrowth(capacity));
+	}
+
+	public boolean contains(E item) {
+		BagOperationEvent event = begin();
+		long start = System.nanoTime();
+		boolean found = bag.contains(item);
+		long elapsed = System.nanoTime() - start;
+		containsCalls.increment();
+		if (!found) {
+			containsMisses.increment();
+			// Only an ArrayBag is known to examine every item on a miss.
+			if (bag instanceof ArrayBag) {
+				itemsScanned.add(bag.size());
+			}
+		}
+		finish(event, "contains", elapsed, 0);
+		return found;
+	}
+
+	public boolean equals(Bag<E> other) {
+		return bag.equals(other);
+	}
+
+	public boolean isEmpty() {
+		return bag.isEmpty();
+	}
+
+	public Iterator<E> iterator() {
+		return bag.iterator();
+	}
+
+	public E remove(E item) throws NoSuchElementException {
+		BagOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			return bag.remove(item);
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			removes.increment();
+			finish(event, "remove", elapsed, 0);
+		}
+	}
+
+	public E removeRandom() throws BagException {
+		BagOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			return bag.removeRandom();
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			randomRemoves.increment();
+			finish(event, "removeRandom", elapsed, 0);
+		}
+	}
+
+	public int size() {
+		return bag.size();
+	}
+
+	public Bag<E> union(Bag<E> other) {
+		return bag.union(other);
+	}
+
+	public String toString() {
+		return bag.toString();
+	}
+
+	public long getAddCount() {
+		return adds.sum();
+	}
+
+	public long getContainsCount() {
+		return containsCalls.sum();
+	}
+
+	public long getContainsMissCount() {
+		return containsMisses.sum();
+	}
+
+	/**
+	 * Obtain the number of items examined by <code>contains</code> calls that did not find their item
+	 * (<code>ArrayBag</code> only).
+	 *
+	 * @return The total number of items scanned by unsuccessful <code>contains</code> calls.
+	 */
+	public long getItemsScanned() {
+		return itemsScanned.sum();
+	}
+
+	public long getRemoveCount() {
+		return removes.sum();
+	}
+
+	public long getRemoveRandomCount() {
+		return randomRemoves.sum();
+	}
+
+	/**
+	 * Obtain the number of times the wrapped bag's backing array grew (<code>ArrayBag</code> only).
+	 *
+	 * @return The number of array growth events.
+	 */
+	public long getGrowthCount() {
+		return growthEvents.sum();
+	}
+
+	/**
+	 * Obtain the number of bytes copied while the wrapped bag's backing array grew
+	 * (<code>ArrayBag</code> only).
+	 *
+	 * @return The number of bytes copied, assuming compressed object references.
+	 */
+	public long getBytesCopied() {
+		return slotsCopied.sum() * REFERENCE_BYTES;
+	}
+
+	public long getSlowOperationCount() {
+		return slowOperations.sum();
+	}
+
+	/**
+	 * Reset all of the counters to zero.
+	 */
+	public void resetCounters() {
+		adds.reset();
+		containsCalls.reset();
+		containsMisses.reset();
+		itemsScanned.reset();
+		removes.reset();
+		randomRemoves.reset();
+		growthEvents.reset();
+		slotsCopied.reset();
+		slowOperations.reset();
+	}
+
+	private int capacity() {
+		return bag instanceof ArrayBag ? ((ArrayBag<E>) bag).capacity() : 0;
+	}
+
+	// ArrayBag doubles its array each time it grows and copies the old contents, so growing from
+	// 'before' to 'after' copies (after - before) slots.
+	private int recordGrowth(int before) {
+		int after = capacity();
+		if (before <= 0 || after <= before) {
+			return 0;
+		}
+		int growths = 0;
+		for (int capacity = before; capacity < after; capacity *= 2) {
+			growths++;
+		}
+		growthEvents.add(growths);
+		slotsCopied.add(after - before);
+		return growths;
+	}
+
+	private static BagOperationEvent begin() {
+		BagOperationEvent event = new BagOperationEvent();
+		event.begin();
+		return event;
+	}
+
+	// Ends the operation's event and commits it if the operation reached the threshold.
+	private void finish(BagOperationEvent event, String operation, long elapsed, int growths) {
+		event.end();
+		if (elapsed < thresholdNanos) {
+			return;
+		}
+		slowOperations.increment();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.bagType = bag.getClass().getName();
+			event.size = bag.size();
+			event.growthEvents = growths;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,608 @@
+package test;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import util.OrderedList;
+import util.OrderedListException;
+
+/**
+ * <p>A headless conformance and load runner for <code>OrderedList</code> implementations.&nbsp; Unlike
+ *   <code>SimpleListTester</code> it needs no display, so it can be run on a build machine.</p>
+ * <p>The runner has two phases:</p>
+ * <ol>
+ *   <li><b>Conformance</b>: a randomized sequence of operations is applied both to the implementation
+ *     and to a reference model, and after every operation the pre- and postconditions documented on
+ *     <code>OrderedList</code> are checked (results, thrown exceptions, size and current position).&nbsp;
+ *     The first violation is reported with the seed and step needed to reproduce it.</li>
+ *   <li><b>Load</b>: for each requested size the list is filled to that size and the conformance
+ *     phase's operation generator is replayed against it, with inserts and removals swapped as needed
+ *     to hold the list at that size; latency percentiles are reported per operation.&nbsp; The
+ *     whole-list operations the generator draws (<code>iterator()</code>, <code>sort()</code> and
+ *     <code>removeAll()</code>) would dominate the run at large sizes, so they are instead timed a
+ *     fixed number of times each after the replay.</li>
+ * </ol>
+ * <p>Usage:</p>
+ * <pre>
+ * java test.OrderedListRunner [implementation] [--seed n] [--steps n] [--ops n] [--sizes n,n,...]
+ * </pre>
+ * <p>The implementation must have a public constructor that takes the maximum size as an
+ *   <code>int</code>; it defaults to <code>util.PersistentList</code>.&nbsp; Sizes default to
+ *   10<sup>3</sup>, 10<sup>4</sup> and 10<sup>5</sup>, must be at least 1 and may go up to
+ *   10<sup>7</sup>; note that filling a list whose positional operations are O(n) to 10<sup>7</sup>
+ *   items takes a long time.&nbsp; A percentile is only reported for an operation once it has enough
+ *   samples to be distinguished from the maximum.</p>
+ */
+public class OrderedListRunner {
+
+	private static final String DEFAULT_IMPLEMENTATION = "util.PersistentList";
+	private static final int CONFORMANCE_MAXIMUM_SIZE = 64;
+	private static final int VALUE_RANGE = 100;
+	private static final int WHOLE_LIST_SAMPLES = 5;
+
+	// The operations drawn by nextOperation.
+	private static final int INSERT = 0;
+	private static final int INSERT_AT = 1;
+	private static final int REMOVE = 2;
+	private static final int REMOVE_AT = 3;
+	private static final int NEXT_POSITION = 4;
+	private static final int PREVIOUS_POSITION = 5;
+	private static final int SET_POSITION = 6;
+	private static final int GET_ITEM = 7;
+	private static final int INDEX_OF = 8;
+	private static final int CONTAINS = 9;
+	private static final int SEEK = 10;
+	private static final int ITERATOR = 11;
+	private static final int SORT = 12;
+	private static final int REMOVE_ALL = 13;
+	private static final String[] OPERATION_NAMES = { "insert(T)", "insert(T,int)", "remove()", "remove(int)",
+			"nextPosition", "previousPosition", "setPosition", "getItem", "indexOf", "contains", "seek",
+			"iterator/item", "sort", "removeAll" };
+
+	private final Constructor<?> constructor;
+	private final long seed;
+
+	public OrderedListRunner(String implementation, long seed) throws Exception {
+		this.constructor = Class.forName(implementation).getConstructor(int.class);
+		this.seed = seed;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String implementation = DEFAULT_IMPLEMENTATION;
+		long seed = System.nanoTime();
+		int steps = 200000;
+		int ops = 100000;
+		int[] sizes = { 1000, 10000, 100000 };
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--seed") && i + 1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			} else if (arg.equals("--steps") && i + 1 < args.length) {
+				steps = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--ops") && i + 1 < args.length) {
+				ops = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--sizes") && i + 1 < args.length) {
+				String[] values = args[++i].split(",");
+				sizes = new int[values.length];
+				for (int j = 0; j < values.length; j++) {
+					sizes[j] = (int) Double.parseDouble(values[j]);
+					if (sizes[j] < 1) {
+						System.err.println("Load sizes must be at least 1: " + values[j]);
+						System.exit(2);
+					}
+				}
+			} else if (!arg.startsWith("--")) {
+				implementation = arg;
+			} else {
+				System.err.println("Usage: java test.OrderedListRunner [implementation] [--seed n] [--steps n]"
+						+ " [--ops n] [--sizes n,n,...]");
+				System.exit(2);
+			}
+		}
+
+		OrderedListRunner runner = new OrderedListRunner(implementation, seed);
+		System.out.println("Implementation: " + implementation + "  seed: " + seed);
+		String failure = runner.checkConformance(steps);
+		if (failure != null) {
+			System.out.println("FAIL " + failure);
+			System.exit(1);
+		}
+		System.out.println("Conformance: PASS (" + steps + " steps)");
+		for (int size : sizes) {
+			runner.runLoad(size, ops);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private OrderedList<Integer> newList(int maximumSize) throws Exception {
+		return (OrderedList<Integer>) constructor.newInstance(maximumSize);
+	}
+
+	// ---- conformance ----
+
+	/**
+	 * Apply a randomized sequence of operations to a new list and a reference model, checking the
+	 * <code>OrderedList</code> contract after each one.
+	 *
+	 * @param steps The number of operations to perform.
+	 * @return A description of the first violation or <code>null</code> if there was none.
+	 */
+	public String checkConformance(int steps) throws Exception {
+		Random random = new Random(seed);
+		OrderedList<Integer> list = newList(CONFORMANCE_MAXIMUM_SIZE);
+		List<Integer> model = new ArrayList<Integer>();
+		int position = 1;
+		if (list.getMaximumSize() != CONFORMANCE_MAXIMUM_SIZE) {
+			return "getMaximumSize() returned " + list.getMaximumSize() + ", expected " + CONFORMANCE_MAXIMUM_SIZE;
+		}
+		for (int step = 0; step < steps; step++) {
+			int size = model.size();
+			boolean empty = size == 0;
+			String operation = "";
+			boolean expectFailure = false;
+			try {
+				switch (nextOperation(random)) {
+				case INSERT: {
+					Integer item = random.nextInt(VALUE_RANGE);
+					operation = "insert(" + item + ")";
+					expectFailure = size == CONFORMANCE_MAXIMUM_SIZE;
+					list.insert(item);
+					if (expectFailure) {
+						break;
+					}
+					model.add(position - 1, item);
+					if (!item.equals(list.getItem())) {
+						return failure(step, operation, "getItem() does not return the inserted item");
+					}
+					break;
+				}
+				case INSERT_AT: {
+					Integer item = random.nextInt(VALUE_RANGE);
+					int target = random.nextInt(size + 4) - 1;
+					operation = "insert(" + item + ", " + target + ")";
+					expectFailure = size == CONFORMANCE_MAXIMUM_SIZE;
+					list.insert(item, target);
+					if (expectFailure) {
+						break;
+					}
+					int index = Math.max(0, Math.min(target - 1, size));
+					model.add(index, item);
+					position = index + 1;
+					break;
+				}
+				case REMOVE: {
+					operation = "remove()";
+					expectFailure = empty;
+					list.remove();
+					if (expectFailure) {
+						break;
+					}
+					model.remove(position - 1);
+					position = clamp(position, model.size());
+					break;
+				}
+				case REMOVE_AT: {
+					int target = random.nextInt(size + 2);
+					operation = "remove(" + target + ")";
+					expectFailure = empty || target < 1 || target > size;
+					list.remove(target);
+					if (expectFailure) {
+						break;
+					}
+					model.remove(target - 1);
+					position = clamp(position, model.size());
+					break;
+				}
+				case NEXT_POSITION: {
+					operation = "nextPosition()";
+					expectFailure = empty || position == size;
+					list.nextPosition();
+					if (expectFailure) {
+						break;
+					}
+					position++;
+					break;
+				}
+				case PREVIOUS_POSITION: {
+					operation = "previousPosition()";
+					expectFailure = empty || position == 1;
+					list.previousPosition();
+					if (expectFailure) {
+						break;
+					}
+					position--;
+					break;
+				}
+				case SET_POSITION: {
+					int target = random.nextInt(size + 4) - 1;
+					operation = "setPosition(" + target + ")";
+					list.setPosition(target);
+					position = clamp(target, size);
+					break;
+				}
+				case GET_ITEM: {
+					operation = "getItem()";
+					expectFailure = empty;
+					Integer item = list.getItem();
+					if (expectFailure) {
+						break;
+					}
+					if (!model.get(position - 1).equals(item)) {
+						return failure(step, operation, "returned " + item + ", expected " + model.get(position - 1));
+					}
+					break;
+				}
+				case REMOVE_ALL: {
+					operation = "removeAll()";
+					list.removeAll();
+					model.clear();
+					position = 1;
+					break;
+				}
+				case SORT: {
+					operation = "sort()";
+					list.sort();
+					Collections.sort(model);
+					position = Math.max(1, size);
+					break;
+				}
+				case INDEX_OF: {
+					Integer item = random.nextInt(VALUE_RANGE);
+					operation = "indexOf(" + item + ")";
+					int found = list.indexOf(item);
+					if (found != model.indexOf(item) + 1) {
+						return failure(step, operation, "returned " + found + ", expected " + (model.indexOf(item) + 1));
+					}
+					break;
+				}
+				case CONTAINS: {
+					Integer item = random.nextInt(VALUE_RANGE);
+					operation = "contains(" + item + ")";
+					if (list.contains(item) != model.contains(item)) {
+						return failure(step, operation, "returned " + list.contains(item));
+					}
+					break;
+				}
+				case SEEK: {
+					Integer item = random.nextInt(VALUE_RANGE);
+					operation = "seek(" + item + ")";
+					int target = -1;
+					for (int i = 0; i < size; i++) {
+						if (model.get(i).equals(item) && (target < 0 || (target < position - 1 && i >= position - 1))) {
+							target = i;
+						}
+					}
+					boolean found = list.seek(item);
+					if (found != (target >= 0)) {
+						return failure(step, operation, "returned " + found);
+					}
+					if (found) {
+						position = target + 1;
+					}
+					break;
+				}
+				default: {
+					// ITERATOR
+					operation = "iterator()";
+					Iterator<Integer> iterator = list.iterator();
+					for (Integer expected : model) {
+						if (!iterator.hasNext() || !expected.equals(iterator.next())) {
+							return failure(step, operation, "iteration does not match the list contents " + model);
+						}
+					}
+					if (iterator.hasNext()) {
+						return failure(step, operation, "iteration returned more items than the list holds");
+					}
+					break;
+				}
+				}
+				// Each case stops as soon as a call that should have failed returns normally.
+				if (expectFailure) {
+					return failure(step, operation, "an OrderedListException was expected");
+				}
+			} catch (OrderedListException e) {
+				if (!expectFailure) {
+					return failure(step, operation, "unexpected OrderedListException: " + e.getMessage());
+				}
+			} catch (RuntimeException e) {
+				return failure(step, operation, "unexpected " + e);
+			}
+			// A call that fails must leave the list unchanged, so the model is checked in either case.
+			String violation = checkState(list, model, position);
+			if (violation != null) {
+				return failure(step, operation, violation);
+			}
+		}
+		return null;
+	}
+
+	private static String checkState(OrderedList<Integer> list, List<Integer> model, int position) {
+		if (list.size() != model.size()) {
+			return "size() returned " + list.size() + ", expected " + model.size();
+		}
+		if (list.isEmpty() != model.isEmpty()) {
+			return "isEmpty() returned " + list.isEmpty();
+		}
+		if (list.isFull() != (model.size() >= list.getMaximumSize())) {
+			return "isFull() returned " + list.isFull();
+		}
+		if (list.getPosition() != position) {
+			return "getPosition() returned " + list.getPosition() + ", expected " + position;
+		}
+		return null;
+	}
+
+	// Draws the next operation for both the conformance and the load phases.
+	private static int nextOperation(Random random) {
+		switch (random.nextInt(23)) {
+		case 0: case 1: case 2:
+			return INSERT;
+		case 3: case 4: case 5:
+			return INSERT_AT;
+		case 6: case 7:
+			return REMOVE;
+		case 8: case 9:
+			return REMOVE_AT;
+		case 10: case 11:
+			return NEXT_POSITION;
+		case 12: case 13:
+			return PREVIOUS_POSITION;
+		case 14: case 15:
+			return SET_POSITION;
+		case 16: case 17:
+			return GET_ITEM;
+		case 18:
+			return random.nextInt(4) == 0 ? REMOVE_ALL : SORT;
+		case 19:
+			return INDEX_OF;
+		case 20:
+			return CONTAINS;
+		case 21:
+			return SEEK;
+		default:
+			return ITERATOR;
+		}
+	}
+
+	private static int clamp(int position, int size) {
+		return Math.max(1, Math.min(position, size));
+	}
+
+	private String failure(int step, String operation, String message) {
+		return "step " + step + " (seed " + seed + "): " + operation + ": " + message;
+	}
+
+	// ---- load ----
+
+	/**
+	 * Fill a new list to the given size, replay the conformance operation generator against it and
+	 * print the latency percentiles of each operation.&nbsp; Inserts and removals are swapped as
+	 * needed so that the list holds <code>size</code> or <code>size + 1</code> items throughout, and
+	 * the whole-list operations are timed <code>WHOLE_LIST_SAMPLES</code> times each after the replay.
+	 *
+	 * @param size The number of items in the list during the replay; at least 1.
+	 * @param ops The number of operations to replay.
+	 */
+	public void runLoad(int size, int ops) throws Exception {
+		Random random = new Random(seed ^ size);
+		OrderedList<Integer> list = newList(size + 1);
+		Histogram append = new Histogram("append");
+		Histogram[] histograms = new Histogram[OPERATION_NAMES.length];
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new Histogram(OPERATION_NAMES[i]);
+		}
+		// Values repeat about once per item, so searches find their item part of the time.
+		int valueRange = size;
+
+		fill(list, size, valueRange, random, append);
+		for (int i = 0; i < ops; i++) {
+			int operation = nextOperation(random);
+			if (list.size() > size) {
+				operation = operation == INSERT ? REMOVE : operation == INSERT_AT ? REMOVE_AT : operation;
+			} else {
+				operation = operation == REMOVE ? INSERT : operation == REMOVE_AT ? INSERT_AT : operation;
+			}
+			long start;
+			switch (operation) {
+			case INSERT: {
+				Integer item = random.nextInt(valueRange);
+				start = System.nanoTime();
+				list.insert(item);
+				break;
+			}
+			case INSERT_AT: {
+				Integer item = random.nextInt(valueRange);
+				int target = 1 + random.nextInt(list.size() + 1);
+				start = System.nanoTime();
+				list.insert(item, target);
+				break;
+			}
+			case REMOVE: {
+				start = System.nanoTime();
+				list.remove();
+				break;
+			}
+			case REMOVE_AT: {
+				int target = 1 + random.nextInt(list.size());
+				start = System.nanoTime();
+				list.remove(target);
+				break;
+			}
+			case NEXT_POSITION: {
+				// Wrap around instead of stepping past the end.
+				if (list.getPosition() == list.size()) {
+					list.setPosition(1);
+				}
+				start = System.nanoTime();
+				if (list.getPosition() < list.size()) {
+					list.nextPosition();
+				}
+				break;
+			}
+			case PREVIOUS_POSITION: {
+				if (list.getPosition() == 1) {
+					list.setPosition(list.size());
+				}
+				start = System.nanoTime();
+				if (list.getPosition() > 1) {
+					list.previousPosition();
+				}
+				break;
+			}
+			case SET_POSITION: {
+				int target = 1 + random.nextInt(list.size());
+				start = System.nanoTime();
+				list.setPosition(target);
+				break;
+			}
+			case GET_ITEM: {
+				start = System.nanoTime();
+				list.getItem();
+				break;
+			}
+			case INDEX_OF: {
+				Integer item = random.nextInt(valueRange);
+				start = System.nanoTime();
+				list.indexOf(item);
+				break;
+			}
+			case CONTAINS: {
+				Integer item = random.nextInt(valueRange);
+				start = System.nanoTime();
+				list.contains(item);
+				break;
+			}
+			case SEEK: {
+				Integer item = random.nextInt(valueRange);
+				start = System.nanoTime();
+				list.seek(item);
+				break;
+			}
+			default:
+				// Whole-list operations are timed separately below.
+				continue;
+			}
+			histograms[operation].record(System.nanoTime() - start);
+		}
+
+		// Each sample starts from a freshly filled, unsorted list.
+		for (int sample = 0; sample < WHOLE_LIST_SAMPLES; sample++) {
+			long start = System.nanoTime();
+			for (Iterator<Integer> it = list.iterator(); it.hasNext();) {
+				it.next();
+			}
+			histograms[ITERATOR].record((System.nanoTime() - start) / Math.max(1, list.size()));
+			start = System.nanoTime();
+			list.sort();
+			histograms[SORT].record(System.nanoTime() - start);
+			start = System.nanoTime();
+			list.removeAll();
+			histograms[REMOVE_ALL].record(System.nanoTime() - start);
+			if (sample + 1 < WHOLE_LIST_SAMPLES) {
+				fill(list, size, valueRange, random, null);
+			}
+		}
+
+		System.out.println();
+		System.out.println("Load: size=" + size + " ops=" + ops + " (latencies in ns)");
+		System.out.println(Histogram.header());
+		System.out.println(append);
+		for (Histogram histogram : histograms) {
+			System.out.println(histogram);
+		}
+	}
+
+	// Appends random items until the list holds 'size' items, recording each append if 'append' is
+	// not null.
+	private static void fill(OrderedList<Integer> list, int size, int valueRange, Random random, Histogram append) {
+		for (int i = list.size(); i < size; i++) {
+			Integer item = random.nextInt(valueRange);
+			long start = System.nanoTime();
+			list.insert(item, i + 1);
+			if (append != null) {
+				append.record(System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * A log-linear latency histogram: values are grouped by their highest set bit and each group is
+	 * split into 16 linear sub-buckets, so percentiles are accurate to about 6%.
+	 */
+	private static class Histogram {
+
+		private static final int SUB_BUCKET_BITS = 5;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		private static final int HALF = SUB_BUCKETS / 2;
+
+		private final String name;
+		private final long[] counts = new long[SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF];
+		private long count;
+		private long max;
+
+		public Histogram(String name) {
+			this.name = name;
+		}
+
+		public void record(long value) {
+			value = Math.max(0, value);
+			counts[index(value)]++;
+			count++;
+			max = Math.max(max, value);
+		}
+
+		public long percentile(double percentile) {
+			long rank = (long) Math.ceil(percentile / 100.0 * count);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && counts[i] > 0) {
+					return Math.min(max, lowestValue(i));
+				}
+			}
+			return max;
+		}
+
+		public static String header() {
+			return String.format("%-16s %10s %10s %10s %10s %10s %12s", "operation", "count", "p50", "p90", "p99",
+					"p99.9", "max");
+		}
+
+		public String toString() {
+			if (count == 0) {
+				return String.format("%-16s %10d", name, 0);
+			}
+			return String.format("%-16s %10d %10s %10s %10s %10s %12d", name, count, format(50), format(90),
+					format(99), format(99.9), max);
+		}
+
+		// A percentile is only reported once there are enough samples for it to differ from the maximum,
+		// e.g. 10 for p90 and 1000 for p99.9.
+		private String format(double percentile) {
+			long needed = (long) Math.ceil(100 / (100 - percentile) - 1e-9);
+			return count >= needed ? Long.toString(percentile(percentile)) : "-";
+		}
+
+		private static int index(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			// Keep the top SUB_BUCKET_BITS bits of the value; the highest of them is always set.
+			int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+			return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+		}
+
+		private static long lowestValue(int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			int shift = (index - SUB_BUCKETS) / HALF + 1;
+			long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+			return subBucket << shift;
+		}
+	}
+}
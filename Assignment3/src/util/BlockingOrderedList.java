@@ -0,0 +1,388 @@
+package util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>A thread-safe <code>OrderedList</code> that adds blocking producer/consumer operations on top of
+ *   another ordered list.&nbsp; The wrapped list's maximum size acts as a bound: <code>put</code>
+ *   waits while the list <code>isFull()</code> and <code>take</code> waits while it is empty, so the
+ *   bound can be used as backpressure instead of retrying on an <code>OrderedListException</code>.</p>
+ * <p>Producers append to the end of the list (like <code>insert(item, size() + 1)</code>) and
+ *   consumers remove from the front (like <code>remove(1)</code>).&nbsp; The ordinary
+ *   <code>OrderedList</code> operations are also available and are performed while holding the same
+ *   lock, so waiting producers and consumers are woken whenever space or items become available.</p>
+ * <p>The wrapped list should not be used directly once it has been wrapped.&nbsp; Iteration is not
+ *   guarded by the lock; wrap a <code>PersistentList</code> if iterators must run alongside writers.</p>
+ */
+public class BlockingOrderedList<T extends Comparable<T>> implements OrderedList<T>,
+		ReorderableList<T> {
+
+	private final OrderedList<T> list;
+	private final ReentrantLock lock;
+	private final Condition notEmpty;
+	private final Condition notFull;
+
+	public BlockingOrderedList(int maximumSize) {
+		this(new PersistentList<T>(maximumSize));
+	}
+
+	public BlockingOrderedList(OrderedList<T> list) {
+		this.list = list;
+		this.lock = new ReentrantLock();
+		this.notEmpty = lock.newCondition();
+		this.notFull = lock.newCondition();
+	}
+
+	/**
+	 * Append an item to the end of the list, waiting for space to become available if the list is full.
+	 *
+	 * @param item An item to be appended.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public void put(T item) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (list.isFull()) {
+				notFull.await();
+			}
+			append(item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Append an item to the end of the list if there is space for it.
+	 *
+	 * @param item An item to be appended.
+	 * @return <code>true</code> if the item was appended or <code>false</code> if the list is full.
+	 */
+	public boolean offer(T item) {
+		lock.lock();
+		try {
+			if (list.isFull()) {
+				return false;
+			}
+			append(item);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Append an item to the end of the list, waiting up to the specified time for space to become
+	 * available if the list is full.
+	 *
+	 * @param item An item to be appended.
+	 * @param timeout How long to wait before giving up.
+	 * @param unit The unit of the timeout.
+	 * @return <code>true</code> if the item was appended or <code>false</code> if the time elapsed first.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (list.isFull()) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+			append(item);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the first item in the list, waiting for an item to become available if the
+	 * list is empty.
+	 *
+	 * @return The item that was removed.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public T take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (list.isEmpty()) {
+				notEmpty.await();
+			}
+			return removeFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the first item in the list if there is one.
+	 *
+	 * @return The item that was removed or <code>null</code> if the list is empty.
+	 */
+	public T poll() {
+		lock.lock();
+		try {
+			return list.isEmpty() ? null : removeFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the first item in the list, waiting up to the specified time for an item to
+	 * become available if the list is empty.
+	 *
+	 * @param timeout How long to wait before giving up.
+	 * @param unit The unit of the timeout.
+	 * @return The item that was removed or <code>null</code> if the time elapsed first.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (list.isEmpty()) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return removeFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Obtain the number of items that can be added before the list becomes full.
+	 *
+	 * @return The maximum size of the list less its current size.
+	 */
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return Math.max(0, list.getMaximumSize() - list.size());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean contains(T item) {
+		lock.lock();
+		try {
+			return list.contains(item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public T getItem() throws OrderedListException {
+		lock.lock();
+		try {
+			return list.getItem();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getMaximumSize() {
+		return list.getMaximumSize();
+	}
+
+	public int getPosition() {
+		lock.lock();
+		try {
+			return list.getPosition();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int indexOf(T item) {
+		lock.lock();
+		try {
+			return list.indexOf(item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void insert(T item) throws OrderedListException {
+		lock.lock();
+		try {
+			list.insert(item);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void insert(T item, int position) throws OrderedListException {
+		lock.lock();
+		try {
+			list.insert(item, position);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isEmpty() {
+		lock.lock();
+		try {
+			return list.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isFull() {
+		lock.lock();
+		try {
+			return list.isFull();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Iterator<T> iterator() {
+		lock.lock();
+		try {
+			return list.iterator();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void nextPosition() throws OrderedListException {
+		lock.lock();
+		try {
+			list.nextPosition();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void previousPosition() throws OrderedListException {
+		lock.lock();
+		try {
+			list.previousPosition();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void remove() throws OrderedListException {
+		lock.lock();
+		try {
+			list.remove();
+			notFull.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void remove(int position) throws OrderedListException {
+		lock.lock();
+		try {
+			list.remove(position);
+			notFull.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void removeAll() {
+		lock.lock();
+		try {
+			list.removeAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean seek(T item) {
+		lock.lock();
+		try {
+			return list.seek(item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void setPosition(int position) {
+		lock.lock();
+		try {
+			list.setPosition(position);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return list.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void sort() {
+		lock.lock();
+		try {
+			list.sort();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Reorders the wrapped list's items while holding the lock, so that producers and consumers cannot
+	// run between reading the items and writing them back.  The size does not change, so no waiting
+	// thread needs to be signalled.
+	public void reorder(UnaryOperator<Object[]> reordering) {
+		lock.lock();
+		try {
+			OrderedLists.reorder(list, reordering);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Sorts the wrapped list with the given comparator while holding the lock, if the wrapped list
+	// can use one.
+	public boolean sort(Comparator<? super T> comparator) {
+		lock.lock();
+		try {
+			return OrderedLists.sort(list, comparator);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Must be called while holding the lock.
+	private void append(T item) {
+		list.insert(item, list.size() + 1);
+		notEmpty.signal();
+	}
+
+	// Must be called while holding the lock and with the list not empty.  The current position is
+	// left as remove(1) would leave it.
+	private T removeFirst() {
+		int position = list.getPosition();
+		list.setPosition(1);
+		T item = list.getItem();
+		list.setPosition(position);
+		list.remove(1);
+		notFull.signal();
+		return item;
+	}
+}
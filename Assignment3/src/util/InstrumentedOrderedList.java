@@ -0,0 +1,365 @@
+package util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>An <code>OrderedList</code> decorator that counts the operations performed on another list and
+ *   reports slow operations to JDK Flight Recorder.&nbsp; The counters are <code>LongAdder</code>s,
+ *   so they are cheap to update even when the list is shared between threads.</p>
+ * <p>In addition to per-operation counts the decorator records:</p>
+ * <ul>
+ *   <li>for each positional call (<code>insert(T, int)</code>, <code>remove(int)</code> and
+ *     <code>setPosition(int)</code>), a modelled count of the nodes a head-anchored linked list such
+ *     as <code>SimpleList</code> would traverse to reach the requested position.&nbsp; It is worked
+ *     out from the position, not measured, so it describes a linked list whatever the wrapped list
+ *     actually is;</li>
+ *   <li>the number of <code>compareTo()</code> calls made by each <code>sort()</code>, where the
+ *     wrapped list allows them to be counted.</li>
+ * </ul>
+ * <p><code>sort()</code> is carried out by the wrapped list.&nbsp; Comparisons can only be counted
+ *   when the implementation lets the decorator supply the comparator its sort uses
+ *   (<code>PersistentList</code>, directly or inside a <code>BlockingOrderedList</code>); for any other
+ *   list the sort is timed but its comparisons are reported as unavailable.</p>
+ * <p>Any operation that takes at least the configured threshold is counted by
+ *   <code>getSlowOperationCount()</code> and emits a <code>util.OrderedListOperation</code>
+ *   Flight Recorder event whose duration is the operation's.&nbsp; The wrapped list should only be
+ *   modified through the decorator.</p>
+ */
+public class InstrumentedOrderedList<T extends Comparable<T>> implements OrderedList<T>,
+		ReorderableList<T> {
+
+	private static final long DEFAULT_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final OrderedList<T> list;
+	private final long thresholdNanos;
+
+	private final LongAdder getItemCalls = new LongAdder();
+	private final LongAdder inserts = new LongAdder();
+	private final LongAdder removes = new LongAdder();
+	private final LongAdder positionChanges = new LongAdder();
+	private final LongAdder positionalCalls = new LongAdder();
+	private final LongAdder nodesTraversed = new LongAdder();
+	private final LongAdder iterators = new LongAdder();
+	private final LongAdder searches = new LongAdder();
+	private final LongAdder sorts = new LongAdder();
+	private final LongAdder countedSorts = new LongAdder();
+	private final LongAdder comparisons = new LongAdder();
+	private final LongAdder slowOperations = new LongAdder();
+
+	public InstrumentedOrderedList(OrderedList<T> list) {
+		this(list, DEFAULT_THRESHOLD_NANOS);
+	}
+
+	/**
+	 * Create a decorator for a list.
+	 *
+	 * @param list The list to be instrumented.
+	 * @param thresholdNanos Operations that take at least this many nanoseconds emit a Flight Recorder event.
+	 */
+	public InstrumentedOrderedList(OrderedList<T> list, long thresholdNanos) {
+		this.list = list;
+		this.thresholdNanos = thresholdNanos;
+	}
+
+	public boolean contains(T item) {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		boolean found = list.contains(item);
+		searches.increment();
+		finish(event, "contains", System.nanoTime() - start, 0, 0);
+		return found;
+	}
+
+	public T getItem() throws OrderedListException {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			return list.getItem();
+		} finally {
+			getItemCalls.increment();
+			finish(event, "getItem", System.nanoTime() - start, 0, 0);
+		}
+	}
+
+	public int getMaximumSize() {
+		return list.getMaximumSize();
+	}
+
+	public int getPosition() {
+		return list.getPosition();
+	}
+
+	public int indexOf(T item) {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		int position = list.indexOf(item);
+		searches.increment();
+		finish(event, "indexOf", System.nanoTime() - start, 0, 0);
+		return position;
+	}
+
+	public void insert(T item) throws OrderedListException {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			list.insert(item);
+		} finally {
+			inserts.increment();
+			finish(event, "insert", System.nanoTime() - start, 0, 0);
+		}
+	}
+
+	public void insert(T item, int position) throws OrderedListException {
+		int traversed = Math.max(0, Math.min(position, list.size() + 1) - 1);
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			list.insert(item, position);
+		} finally {
+			inserts.increment();
+			recordPositional(traversed);
+			finish(event, "insertAt", System.nanoTime() - start, traversed, 0);
+		}
+	}
+
+	public boolean isEmpty() {
+		return list.isEmpty();
+	}
+
+	public boolean isFull() {
+		return list.isFull();
+	}
+
+	public Iterator<T> iterator() {
+		iterators.increment();
+		return list.iterator();
+	}
+
+	public void nextPosition() throws OrderedListException {
+		positionChanges.increment();
+		list.nextPosition();
+	}
+
+	public void previousPosition() throws OrderedListException {
+		positionChanges.increment();
+		list.previousPosition();
+	}
+
+	public void remove() throws OrderedListException {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			list.remove();
+		} finally {
+			removes.increment();
+			finish(event, "remove", System.nanoTime() - start, 0, 0);
+		}
+	}
+
+	public void remove(int position) throws OrderedListException {
+		int traversed = Math.max(0, Math.min(position, list.size()) - 1);
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		try {
+			list.remove(position);
+		} finally {
+			removes.increment();
+			recordPositional(traversed);
+			finish(event, "removeAt", System.nanoTime() - start, traversed, 0);
+		}
+	}
+
+	public void removeAll() {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		list.removeAll();
+		finish(event, "removeAll", System.nanoTime() - start, 0, 0);
+	}
+
+	public boolean seek(T item) {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		boolean found = list.seek(item);
+		searches.increment();
+		positionChanges.increment();
+		finish(event, "seek", System.nanoTime() - start, 0, 0);
+		return found;
+	}
+
+	public void setPosition(int position) {
+		int traversed = Math.max(0, Math.min(position, list.size()) - 1);
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		list.setPosition(position);
+		positionChanges.increment();
+		recordPositional(traversed);
+		finish(event, "setPosition", System.nanoTime() - start, traversed, 0);
+	}
+
+	public int size() {
+		return list.size();
+	}
+
+	public void sort() {
+		CountingComparator comparator = new CountingComparator();
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		long compared = -1;
+		if (OrderedLists.sort(list, comparator)) {
+			compared = comparator.count;
+		} else {
+			list.sort();
+		}
+		long elapsed = System.nanoTime() - start;
+		sorts.increment();
+		if (compared >= 0) {
+			countedSorts.increment();
+			comparisons.add(compared);
+		}
+		finish(event, "sort", elapsed, 0, compared);
+	}
+
+	// Forwards a reordering by OrderedLists to the wrapped list, so that it reaches a guarded list such
+	// as BlockingOrderedList intact.
+	public void reorder(UnaryOperator<Object[]> reordering) {
+		OrderedListOperationEvent event = begin();
+		long start = System.nanoTime();
+		OrderedLists.reorder(list, reordering);
+		finish(event, "reorder", System.nanoTime() - start, 0, 0);
+	}
+
+	// Forwards a comparator sort to the wrapped list; an outer decorator's comparator counts the
+	// comparisons.
+	public boolean sort(Comparator<? super T> comparator) {
+		return OrderedLists.sort(list, comparator);
+	}
+
+	public long getGetItemCount() {
+		return getItemCalls.sum();
+	}
+
+	public long getInsertCount() {
+		return inserts.sum();
+	}
+
+	public long getRemoveCount() {
+		return removes.sum();
+	}
+
+	public long getPositionChangeCount() {
+		return positionChanges.sum();
+	}
+
+	public long getPositionalCallCount() {
+		return positionalCalls.sum();
+	}
+
+	/**
+	 * Obtain the total number of nodes a head-anchored linked list would traverse for the positional
+	 * calls made so far.&nbsp; This is modelled from the requested positions, not measured on the
+	 * wrapped list.&nbsp; Divide by <code>getPositionalCallCount()</code> for the average per call.
+	 *
+	 * @return The modelled number of nodes traversed by positional calls.
+	 */
+	public long getNodesTraversed() {
+		return nodesTraversed.sum();
+	}
+
+	public long getIteratorCount() {
+		return iterators.sum();
+	}
+
+	public long getSearchCount() {
+		return searches.sum();
+	}
+
+	public long getSortCount() {
+		return sorts.sum();
+	}
+
+	/**
+	 * Obtain the number of sorts whose comparisons were counted.&nbsp; This is less than
+	 * <code>getSortCount()</code> if the wrapped list does not allow its comparisons to be counted.
+	 *
+	 * @return The number of sorts included in <code>getComparisonCount()</code>.
+	 */
+	public long getCountedSortCount() {
+		return countedSorts.sum();
+	}
+
+	/**
+	 * Obtain the total number of <code>compareTo()</code> calls made by the counted sorts so far.&nbsp;
+	 * Divide by <code>getCountedSortCount()</code> for the average per sort.
+	 *
+	 * @return The total number of comparisons made while sorting.
+	 */
+	public long getComparisonCount() {
+		return comparisons.sum();
+	}
+
+	public long getSlowOperationCount() {
+		return slowOperations.sum();
+	}
+
+	/**
+	 * Reset all of the counters to zero.
+	 */
+	public void resetCounters() {
+		getItemCalls.reset();
+		inserts.reset();
+		removes.reset();
+		positionChanges.reset();
+		positionalCalls.reset();
+		nodesTraversed.reset();
+		iterators.reset();
+		searches.reset();
+		sorts.reset();
+		countedSorts.reset();
+		comparisons.reset();
+		slowOperations.reset();
+	}
+
+	private void recordPositional(int traversed) {
+		positionalCalls.increment();
+		nodesTraversed.add(traversed);
+	}
+
+	private static OrderedListOperationEvent begin() {
+		OrderedListOperationEvent event = new OrderedListOperationEvent();
+		event.begin();
+		return event;
+	}
+
+	// Ends the operation's event and commits it if the operation reached the threshold.
+	private void finish(OrderedListOperationEvent event, String operation, long elapsed, int traversed,
+			long compared) {
+		event.end();
+		if (elapsed < thresholdNanos) {
+			return;
+		}
+		slowOperations.increment();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.listType = list.getClass().getName();
+			event.size = list.size();
+			event.position = list.getPosition();
+			event.nodesTraversed = traversed;
+			event.comparisons = compared;
+			event.commit();
+		}
+	}
+
+	private class CountingComparator implements Comparator<T> {
+
+		private long count;
+
+		public int compare(T a, T b) {
+			count++;
+			return a.compareTo(b);
+		}
+	}
+}
@@ -23,11 +23,26 @@ import java.util.ConcurrentModificationException;
  *   <li>Determine the current size of the ordered list.</li>
  *   <li>Determine the maximum size of the ordered list.</li>
  *   <li>Retrieve an item from the ordered list.</li>
+ *   <li>Determine if an item is in the ordered list and find its position.</li>
  *   <li>Sort the items in the ordered list.</li>
  * </ol>
  */
 public interface OrderedList<T extends Comparable<T>> {
 
+  /**
+   * Determines if the list contains an item.&nbsp; Items are matched with <code>equals()</code>.
+   *
+   * @param item The item to be found.
+   * @return <code>true</code> if the item is in the list, <code>false</code> otherwise.
+   */
+  public default boolean contains(T item) {
+    return indexOf(item) > 0;
+  }
+  // Precondition: None.
+  // Postcondition: Returns true if some item x in the list satisfies x.equals(item), otherwise false.
+  // Postcondition: The current position is not changed.
+  // Throws: None.
+
   /**
    * Obtain the item at the current position.
    *
@@ -62,6 +77,29 @@ public interface OrderedList<T extends Comparable<T>> {
   // Postcondition: The current position number is returned.
   // Throws: None.
 
+  /**
+   * Obtain the position of the first occurrence of an item in the list.&nbsp; Items are matched
+   * with <code>equals()</code>.&nbsp; Because positions start at 1 (one), a result of 0 (zero)
+   * means that the item is not in the list.
+   *
+   * @param item The item to be found.
+   * @return The lowest position holding the item, or 0 if the list does not contain it.
+   */
+  public default int indexOf(T item) {
+    int position = 1;
+    for (Iterator<T> it = iterator(); it.hasNext(); position++) {
+      if (it.next().equals(item)) {
+        return position;
+      }
+    }
+    return 0;
+  }
+  // Precondition: None.
+  // Postcondition: Returns the smallest position p such that the item at p equals item, or 0 if
+  //                there is no such position.
+  // Postcondition: The current position is not changed.
+  // Throws: None.
+
   /**
    * Inserts an item into the list at the current position.&nbsp; If an element occupies
    * the current position before this call, that element will be the new item's
@@ -216,6 +254,44 @@ public interface OrderedList<T extends Comparable<T>> {
   // Postcondition: The current position is set to 1.
   // Throws: None.
 
+  /**
+   * Moves the current position to the next occurrence of an item, searching forward from the
+   * current position (inclusive) and continuing from position 1 (one) if the end of the list is
+   * reached.&nbsp; Items are matched with <code>equals()</code>.&nbsp; If the list does not contain
+   * the item the current position is not changed.
+   *
+   * @param item The item to be found.
+   * @return <code>true</code> if the item was found, <code>false</code> otherwise.
+   */
+  public default boolean seek(T item) {
+    int size = size();
+    int start = getPosition();
+    int position = 1;
+    int found = 0;
+    for (Iterator<T> it = iterator(); it.hasNext() && position <= size; position++) {
+      if (it.next().equals(item)) {
+        if (position >= start) {
+          found = position;
+          break;
+        }
+        if (found == 0) {
+          found = position;
+        }
+      }
+    }
+    if (found == 0) {
+      return false;
+    }
+    setPosition(found);
+    return true;
+  }
+  // Precondition: None.
+  // Postcondition: If the item is in the list, the current position is set to the first position
+  //                p >= this.getPosition() whose item equals item or, if there is none, to the
+  //                first such position p < this.getPosition(); otherwise the current position is
+  //                not changed.
+  // Throws: None.
+
   /**
    * Sets the current position value for the list.&nbsp; The position value must be
    * between 1 (one) and the number of items in the list.&nbsp; If the provided
@@ -0,0 +1,13 @@
+package util;
+
+public class OrderedListException extends RuntimeException {
+	
+	public OrderedListException() {
+		super();
+	}
+	
+	public OrderedListException(String message) {
+		super(message);
+	}
+
+}
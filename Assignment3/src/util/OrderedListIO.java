@@ -0,0 +1,227 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * <p>Streaming import and export of <code>OrderedList</code> contents using a length-prefixed binary
+ *   file format.&nbsp; Both directions use a fixed amount of buffer space no matter how many items the
+ *   list holds: export makes a single pass over <code>iterator()</code> into a buffered
+ *   <code>FileChannel</code>, and import memory-maps the file in windows and appends the items to the
+ *   end of the list.&nbsp; A <code>PersistentList</code> receives all of the items in one bulk append
+ *   that rebuilds its tree in O(n); any other list receives one <code>insert(T, int)</code> at
+ *   position <code>size() + 1</code> per item, which costs whatever appending costs for that list
+ *   (a walk from the head per item for a head-anchored linked list).</p>
+ * <p>The file format is:</p>
+ * <pre>
+ *   int  magic     0x4F4C5354 ("OLST")
+ *   int  version   1
+ *   long count     number of records
+ *   count records, each an int length followed by that many bytes produced by a Codec
+ * </pre>
+ * <p>All values are big-endian.</p>
+ */
+public class OrderedListIO {
+
+	/**
+	 * Converts items to and from the bytes stored in a record.
+	 */
+	public interface Codec<T> {
+
+		/**
+		 * Encode an item.
+		 *
+		 * @param item The item to be encoded.
+		 * @return The bytes for the item's record.
+		 */
+		public byte[] encode(T item);
+
+		/**
+		 * Decode an item.
+		 *
+		 * @param record A buffer whose remaining bytes are exactly one record.
+		 * @return The decoded item.
+		 */
+		public T decode(ByteBuffer record);
+	}
+
+	/**
+	 * A codec that stores strings as UTF-8.
+	 */
+	public static final Codec<String> STRING_CODEC = new Codec<String>() {
+
+		public byte[] encode(String item) {
+			return item.getBytes(StandardCharsets.UTF_8);
+		}
+
+		public String decode(ByteBuffer record) {
+			byte[] bytes = new byte[record.remaining()];
+			record.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	private static final int MAGIC = 0x4F4C5354;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int COUNT_OFFSET = 8;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+	private OrderedListIO() {
+	}
+
+	/**
+	 * Write the items of a list, in position order, to a file.&nbsp; An existing file is replaced.&nbsp;
+	 * The list is not changed and its current position is not used.
+	 *
+	 * @param list The list to be written.
+	 * @param file The file to write to.
+	 * @param codec Encodes each item.
+	 * @return The number of items written.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static <T extends Comparable<T>> long export(OrderedList<T> list, Path file, Codec<? super T> codec)
+			throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+			long count = 0;
+			for (Iterator<T> it = list.iterator(); it.hasNext();) {
+				byte[] record = codec.encode(it.next());
+				if (buffer.remaining() < 4 + record.length) {
+					flush(channel, buffer);
+				}
+				buffer.putInt(record.length);
+				if (record.length > buffer.remaining()) {
+					flush(channel, buffer);
+					writeFully(channel, ByteBuffer.wrap(record));
+				} else {
+					buffer.put(record);
+				}
+				count++;
+			}
+			flush(channel, buffer);
+			// The count is written last so that it matches the number of records actually written.
+			buffer.putLong(count).flip();
+			long position = COUNT_OFFSET;
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			return count;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Append the items stored in a file to the end of a list, in the order they were written.&nbsp;
+	 * Before returning, the current position is set to the last item appended (as
+	 * <code>insert(T, int)</code> does).
+	 *
+	 * @param list The list that receives the items.
+	 * @param file A file written by <code>export</code>.
+	 * @param codec Decodes each item.
+	 * @return The number of items appended.
+	 * @throws IOException If the file cannot be read or is not in the expected format.&nbsp; A bad header
+	 *         or record count is detected before the list is changed.&nbsp; A record that turns out to
+	 *         be truncated or malformed part way through the file is only detected when it is reached;
+	 *         a <code>PersistentList</code> is then left unchanged, but any other list will already
+	 *         have had the items before it appended.&nbsp; The same applies if the codec fails to
+	 *         decode a record.
+	 * @throws OrderedListException If the list does not have room for all of the items; in that case
+	 *         the list is not changed.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Comparable<T>> long importInto(OrderedList<T> list, Path file,
+			Codec<? extends T> codec) throws IOException, OrderedListException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException(file + " is not an OrderedList file.");
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(file + " is not an OrderedList file.");
+			}
+			long count = header.getLong();
+			// Every record has at least its length prefix, so a count the file cannot hold is rejected
+			// before the list is touched.
+			if (count < 0 || count > (channel.size() - HEADER_SIZE) / 4) {
+				throw new IOException(file + " has an invalid record count: " + count);
+			}
+			if (list.size() + count > list.getMaximumSize()) {
+				throw new OrderedListException("The list would hold " + (list.size() + count)
+						+ " items but its maximum size is " + list.getMaximumSize() + ".");
+			}
+
+			// A PersistentList is filled in one bulk append once every record has been decoded; the
+			// capacity check above guarantees that count fits in an int.
+			Object[] items = list instanceof PersistentList ? new Object[(int) count] : null;
+			long windowStart = HEADER_SIZE;
+			MappedByteBuffer window = map(channel, windowStart, 0);
+			for (long i = 0; i < count; i++) {
+				if (window.remaining() < 4) {
+					windowStart += window.position();
+					window = map(channel, windowStart, 4);
+					if (window.remaining() < 4) {
+						throw new IOException(file + " is truncated.");
+					}
+				}
+				int length = window.getInt(window.position());
+				if (length < 0) {
+					throw new IOException(file + " contains a record with a negative length.");
+				}
+				if (window.remaining() < 4L + length) {
+					windowStart += window.position();
+					window = map(channel, windowStart, 4L + length);
+					if (window.remaining() < 4L + length) {
+						throw new IOException(file + " is truncated.");
+					}
+				}
+				window.position(window.position() + 4);
+				ByteBuffer record = window.slice();
+				record.limit(length);
+				window.position(window.position() + length);
+				if (items != null) {
+					items[(int) i] = codec.decode(record);
+				} else {
+					list.insert(codec.decode(record), list.size() + 1);
+				}
+			}
+			if (items != null) {
+				((PersistentList<T>) list).appendAll(items);
+			}
+			return count;
+		} finally {
+			channel.close();
+		}
+	}
+
+	// Maps the next window of the file starting at 'start'; the window is at least 'minimumSize' bytes
+	// (when the file is long enough) so that a record larger than MAP_WINDOW is mapped whole.
+	private static MappedByteBuffer map(FileChannel channel, long start, long minimumSize) throws IOException {
+		long size = Math.min(channel.size() - start, Math.max(MAP_WINDOW, minimumSize));
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size));
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		writeFully(channel, buffer);
+		buffer.clear();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A JDK Flight Recorder event emitted by <code>InstrumentedOrderedList</code> for an operation that
+ * took at least the list's configured threshold.&nbsp; The decorator applies the threshold itself, so
+ * the event's own threshold is zero.
+ */
+@Name("util.OrderedListOperation")
+@Label("Slow OrderedList Operation")
+@Category({ "COMP251", "OrderedList" })
+@Description("An OrderedList operation that took longer than the configured threshold")
+@Threshold("0 ms")
+final class OrderedListOperationEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("List Type")
+	String listType;
+
+	@Label("Size")
+	@Description("The number of items in the list after the operation")
+	int size;
+
+	@Label("Position")
+	@Description("The current position after the operation")
+	int position;
+
+	@Label("Modelled Nodes Traversed")
+	@Description("Links a head-anchored linked list would follow to reach the requested position; modelled from the position, not measured")
+	int nodesTraversed;
+
+	@Label("Comparisons")
+	@Description("compareTo() calls made by a sort, or -1 if the list does not allow them to be counted")
+	long comparisons;
+}
@@ -0,0 +1,417 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>Static utility operations that work with any <code>OrderedList</code> implementation.</p>
+ */
+public class OrderedLists {
+
+	private OrderedLists() {
+	}
+
+	/**
+	 * Merge several lists, each already sorted into ascending order, onto the end of a target list.&nbsp;
+	 * The items are appended in a single sequential pass and the merge takes O(N log k) comparisons
+	 * for N items in k lists.&nbsp; Equal items keep the order of the lists they came from, so the
+	 * merge is stable.&nbsp; The source lists are not changed.&nbsp; Before returning, the target's
+	 * current position is set to its last position.
+	 *
+	 * @param target The list that receives the merged items.
+	 * @param sources The sorted lists to be merged.
+	 * @throws OrderedListException If the target does not have room for all of the items; in that case
+	 *         the target is not changed.
+	 */
+	public static <T extends Comparable<T>> void merge(OrderedList<T> target,
+			Collection<? extends OrderedList<T>> sources) throws OrderedListException {
+		long total = target.size();
+		for (OrderedList<T> source : sources) {
+			total += source.size();
+		}
+		if (total > target.getMaximumSize()) {
+			throw new OrderedListException("The merged list would hold " + total
+					+ " items but its maximum size is " + target.getMaximumSize() + ".");
+		}
+		for (Iterator<T> it = mergeIterator(sources); it.hasNext();) {
+			target.insert(it.next(), target.size() + 1);
+		}
+		target.setPosition(target.size());
+	}
+
+	/**
+	 * Obtain an iterator that lazily merges several lists, each already sorted into ascending order.&nbsp;
+	 * The merged result is never materialized: each call to <code>next()</code> takes O(log k)
+	 * comparisons for k lists.&nbsp; Equal items are returned in the order of the lists they came from.&nbsp;
+	 * The iterator is subject to the same rules as the iterators of the source lists if those lists are
+	 * modified while it is in use.
+	 *
+	 * @param sources The sorted lists to be merged.
+	 * @return An iterator for the items of all the lists in ascending order.
+	 */
+	public static <T extends Comparable<T>> Iterator<T> mergeIterator(
+			Collection<? extends OrderedList<T>> sources) {
+		return new MergeIterator<T>(sources);
+	}
+
+	/**
+	 * Sort a list into ascending order of a key computed from each item.&nbsp; The key is extracted
+	 * exactly once per item and the sort compares the cached keys, so an expensive
+	 * <code>compareTo()</code> on the items is never called.&nbsp; When the key is consistent with the
+	 * items' natural ordering the result is the same as <code>sort()</code>.&nbsp; The sort is stable
+	 * and, before returning, the current position is set to max(1, list.size()).
+	 *
+	 * @param list The list to be sorted.
+	 * @param keyExtractor Computes the sort key for an item.
+	 */
+	public static <T extends Comparable<T>, K extends Comparable<? super K>> void sortByKey(
+			OrderedList<T> list, final Function<? super T, ? extends K> keyExtractor) {
+		reorder(list, new UnaryOperator<Object[]>() {
+			public Object[] apply(Object[] items) {
+				return OrderedLists.<T, K>sortByKey(items, keyExtractor);
+			}
+		});
+	}
+
+	private static <T, K extends Comparable<? super K>> Object[] sortByKey(Object[] items,
+			Function<? super T, ? extends K> keyExtractor) {
+		Object[] keyed = new Object[items.length];
+		for (int i = 0; i < items.length; i++) {
+			@SuppressWarnings("unchecked")
+			T item = (T) items[i];
+			keyed[i] = new KeyedItem<K>(keyExtractor.apply(item), item);
+		}
+		// Arrays.sort on objects is a stable merge sort.
+		Arrays.sort(keyed);
+		for (int i = 0; i < keyed.length; i++) {
+			items[i] = ((KeyedItem<?>) keyed[i]).item;
+		}
+		return items;
+	}
+
+	/**
+	 * Sort a list into ascending order of a primitive <code>long</code> key computed from each item.&nbsp;
+	 * The key is extracted exactly once per item and the cached keys are ordered with a stable
+	 * least-significant-digit radix sort, so no comparisons are made at all.&nbsp; When the key is
+	 * consistent with the items' natural ordering the result is the same as <code>sort()</code>.&nbsp;
+	 * Before returning, the current position is set to max(1, list.size()).
+	 *
+	 * @param list The list to be sorted.
+	 * @param keyExtractor Computes the sort key for an item.
+	 */
+	public static <T extends Comparable<T>> void sortByLongKey(OrderedList<T> list,
+			final ToLongFunction<? super T> keyExtractor) {
+		reorder(list, new UnaryOperator<Object[]>() {
+			public Object[] apply(Object[] items) {
+				return OrderedLists.<T>sortByLongKey(items, keyExtractor);
+			}
+		});
+	}
+
+	private static <T> Object[] sortByLongKey(Object[] items, ToLongFunction<? super T> keyExtractor) {
+		int n = items.length;
+		long[] keys = new long[n];
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			@SuppressWarnings("unchecked")
+			T item = (T) items[i];
+			// Flipping the sign bit makes unsigned byte order match signed order.
+			keys[i] = keyExtractor.applyAsLong(item) ^ Long.MIN_VALUE;
+			order[i] = i;
+		}
+		long[] keyBuffer = new long[n];
+		int[] orderBuffer = new int[n];
+		int[] counts = new int[256];
+		for (int shift = 0; shift < Long.SIZE; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < n; i++) {
+				counts[(int) (keys[i] >>> shift) & 0xFF]++;
+			}
+			if (n == 0 || counts[(int) (keys[0] >>> shift) & 0xFF] == n) {
+				continue; // every key has the same digit, so this pass would not move anything
+			}
+			for (int digit = 0, start = 0; digit < 256; digit++) {
+				int count = counts[digit];
+				counts[digit] = start;
+				start += count;
+			}
+			for (int i = 0; i < n; i++) {
+				int slot = counts[(int) (keys[i] >>> shift) & 0xFF]++;
+				keyBuffer[slot] = keys[i];
+				orderBuffer[slot] = order[i];
+			}
+			long[] swapKeys = keys;
+			keys = keyBuffer;
+			keyBuffer = swapKeys;
+			int[] swapOrder = order;
+			order = orderBuffer;
+			orderBuffer = swapOrder;
+		}
+		Object[] sorted = new Object[n];
+		for (int i = 0; i < n; i++) {
+			sorted[i] = items[order[i]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Obtain the k largest items of a list, largest first, without sorting the list.&nbsp; The items are
+	 * selected with a bounded heap in O(n log k) time.&nbsp; The list and its current position are not
+	 * changed.
+	 *
+	 * @param list The list to be searched.
+	 * @param k The number of items wanted.
+	 * @return A new list of min(k, list.size()) items.
+	 * @see TopK
+	 */
+	public static <T extends Comparable<T>> List<T> topK(OrderedList<T> list, int k) {
+		TopK<T> top = TopK.largest(k, list.size());
+		top.offerAll(list.iterator());
+		return top.result();
+	}
+
+	/**
+	 * Obtain the k smallest items of a list, smallest first, without sorting the list.&nbsp; The items
+	 * are selected with a bounded heap in O(n log k) time.&nbsp; The list and its current position are
+	 * not changed.
+	 *
+	 * @param list The list to be searched.
+	 * @param k The number of items wanted.
+	 * @return A new list of min(k, list.size()) items.
+	 * @see TopK
+	 */
+	public static <T extends Comparable<T>> List<T> bottomK(OrderedList<T> list, int k) {
+		TopK<T> bottom = TopK.smallest(k, list.size());
+		bottom.offerAll(list.iterator());
+		return bottom.result();
+	}
+
+	/**
+	 * Obtain the item that would be at a given position if the list were sorted, without sorting the
+	 * list.&nbsp; The items are copied into an array and selected with introselect (quickselect that
+	 * falls back to sorting the remaining range if partitioning keeps going badly), which takes O(n)
+	 * expected time.&nbsp; The list and its current position are not changed.
+	 *
+	 * @param list The list to be searched.
+	 * @param rank The position, between 1 and list.size(), in ascending order.
+	 * @return The item of the given rank.
+	 * @throws OrderedListException If the rank is not a legal position in the list.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Comparable<T>> T select(OrderedList<T> list, int rank) throws OrderedListException {
+		if (rank < 1 || rank > list.size()) {
+			throw new OrderedListException("Illegal rank: " + rank);
+		}
+		Object[] items = toArray(list);
+		return (T) introselect(items, rank - 1);
+	}
+
+	/**
+	 * Obtain the median of a list (the lower median if the list has an even number of items) without
+	 * sorting the list.
+	 *
+	 * @param list The list to be searched.
+	 * @return The median item.
+	 * @throws OrderedListException If the list is empty.
+	 * @see #select(OrderedList, int)
+	 */
+	public static <T extends Comparable<T>> T median(OrderedList<T> list) throws OrderedListException {
+		if (list.isEmpty()) {
+			throw new OrderedListException("The list is empty.");
+		}
+		return select(list, (list.size() + 1) / 2);
+	}
+
+	// Rearranges items so that items[index] holds the item of that (0-based) rank and returns it.
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object introselect(Object[] items, int index) {
+		int from = 0;
+		int to = items.length - 1;
+		int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(items.length));
+		while (to - from > 16) {
+			if (depthLimit-- == 0) {
+				Arrays.sort(items, from, to + 1);
+				return items[index];
+			}
+			// Median of three pivot, then a three-way partition so that runs of equal items end quickly.
+			int middle = (from + to) >>> 1;
+			Comparable pivot = median((Comparable) items[from], (Comparable) items[middle], (Comparable) items[to]);
+			int less = from;
+			int greater = to;
+			int i = from;
+			while (i <= greater) {
+				int result = ((Comparable) items[i]).compareTo(pivot);
+				if (result < 0) {
+					swap(items, less++, i++);
+				} else if (result > 0) {
+					swap(items, i, greater--);
+				} else {
+					i++;
+				}
+			}
+			if (index < less) {
+				to = less - 1;
+			} else if (index > greater) {
+				from = greater + 1;
+			} else {
+				return items[index];
+			}
+		}
+		Arrays.sort(items, from, to + 1);
+		return items[index];
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Comparable median(Comparable a, Comparable b, Comparable c) {
+		if (a.compareTo(b) < 0) {
+			return b.compareTo(c) < 0 ? b : (a.compareTo(c) < 0 ? c : a);
+		}
+		return a.compareTo(c) < 0 ? a : (b.compareTo(c) < 0 ? c : b);
+	}
+
+	private static void swap(Object[] items, int i, int j) {
+		Object temp = items[i];
+		items[i] = items[j];
+		items[j] = temp;
+	}
+
+	static <T extends Comparable<T>> Object[] toArray(OrderedList<T> list) {
+		Object[] items = new Object[list.size()];
+		int i = 0;
+		for (Iterator<T> it = list.iterator(); it.hasNext();) {
+			items[i++] = it.next();
+		}
+		return items;
+	}
+
+	// Reorders the items of a list: the reordering is given the list's items and returns the same items
+	// in their new order, which then replace the list's contents.  The current position is set to the
+	// end of the list as sort() does.  A ReorderableList carries out the whole read-reorder-write
+	// itself (under its lock, if it has one); any other list is rewritten through replaceContents.
+	@SuppressWarnings("unchecked")
+	static <T extends Comparable<T>> void reorder(OrderedList<T> list, UnaryOperator<Object[]> reordering) {
+		if (list instanceof ReorderableList) {
+			((ReorderableList<T>) list).reorder(reordering);
+		} else {
+			replaceContents(list, reordering.apply(toArray(list)));
+		}
+	}
+
+	// Sorts a list as sort() does but ordering the items with the given comparator, which must order
+	// them as compareTo() does, if the list is a ReorderableList that can use one.  Returns false,
+	// without sorting, for any other list.
+	@SuppressWarnings("unchecked")
+	static <T extends Comparable<T>> boolean sort(OrderedList<T> list, Comparator<? super T> comparator) {
+		return list instanceof ReorderableList && ((ReorderableList<T>) list).sort(comparator);
+	}
+
+	// Replaces the contents of a list with a reordering of its items and sets the current position to
+	// the end of the list as sort() does.  The list is rewritten in place with one cursor pass,
+	// replacing the item at each position in turn, so every insert fills the slot freed by the removal
+	// before it and the list is never left cleared.  That is n calls each of remove(), insert(T) and
+	// nextPosition(): O(n) for a list whose cursor operations are O(1), but O(n^2) for one (such as a
+	// head-anchored linked list) that walks from the head to the current position on every call.
+	@SuppressWarnings("unchecked")
+	private static <T extends Comparable<T>> void replaceContents(OrderedList<T> list, Object[] items) {
+		int n = items.length;
+		if (n == 0) {
+			return;
+		}
+		list.setPosition(1);
+		for (int i = 0; i < n - 1; i++) {
+			list.remove();
+			list.insert((T) items[i]);
+			list.nextPosition();
+		}
+		// Removing the last item moves the current position back, so the last item is appended instead.
+		list.remove();
+		list.insert((T) items[n - 1], n);
+		list.setPosition(n);
+	}
+
+	private static class KeyedItem<K extends Comparable<? super K>> implements Comparable<KeyedItem<K>> {
+
+		private final K key;
+		private final Object item;
+
+		public KeyedItem(K key, Object item) {
+			this.key = key;
+			this.item = item;
+		}
+
+		public int compareTo(KeyedItem<K> other) {
+			return key.compareTo(other.key);
+		}
+	}
+
+	private static class MergeIterator<T extends Comparable<T>> implements Iterator<T> {
+
+		private final PriorityQueue<Cursor<T>> heap;
+
+		public MergeIterator(Collection<? extends OrderedList<T>> sources) {
+			this.heap = new PriorityQueue<Cursor<T>>(Math.max(1, sources.size()));
+			int index = 0;
+			for (OrderedList<T> source : sources) {
+				Iterator<T> iterator = source.iterator();
+				if (iterator.hasNext()) {
+					heap.add(new Cursor<T>(iterator, index));
+				}
+				index++;
+			}
+		}
+
+		public boolean hasNext() {
+			return !heap.isEmpty();
+		}
+
+		public T next() {
+			Cursor<T> cursor = heap.poll();
+			if (cursor == null) {
+				throw new NoSuchElementException();
+			}
+			T item = cursor.head;
+			if (cursor.advance()) {
+				heap.add(cursor);
+			}
+			return item;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class Cursor<T extends Comparable<T>> implements Comparable<Cursor<T>> {
+
+		private final Iterator<T> iterator;
+		private final int index;
+		private T head;
+
+		public Cursor(Iterator<T> iterator, int index) {
+			this.iterator = iterator;
+			this.index = index;
+			this.head = iterator.next();
+		}
+
+		public boolean advance() {
+			if (iterator.hasNext()) {
+				head = iterator.next();
+				return true;
+			}
+			return false;
+		}
+
+		public int compareTo(Cursor<T> other) {
+			int result = head.compareTo(other.head);
+			return result != 0 ? result : Integer.compare(index, other.index);
+		}
+	}
+}
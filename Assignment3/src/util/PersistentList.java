@@ -0,0 +1,541 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>An <code>OrderedList</code> whose contents are held in a persistent (immutable, structurally
+ *   shared) counted AVL tree.&nbsp; Every modification copies only the O(log n) nodes on the path
+ *   it changes and publishes a new root, so earlier versions of the list remain intact.</p>
+ * <p>Because versions are never modified in place:</p>
+ * <ul>
+ *   <li>the copy constructor and <code>snapshot()</code> are O(1) (they share the current root);</li>
+ *   <li>iterators traverse the version that existed when they were created and never throw a
+ *     <code>ConcurrentModificationException</code>, even while the list continues to be modified;</li>
+ *   <li>positional operations (<code>getItem</code>, <code>insert</code>, <code>remove</code>) are O(log n).</li>
+ * </ul>
+ * <p>Searches (<code>indexOf</code>, <code>contains</code> and <code>seek</code>) use a binary search
+ *   of the tree while the list is known to be sorted (after <code>sort()</code>, for as long as
+ *   every insertion keeps the items in order) and otherwise scan outward from the current position.&nbsp;
+ *   An optional hash index of the items (see <code>setIndexed</code>) answers membership for large
+ *   unsorted lists in O(1) and lets searches for absent items return immediately.</p>
+ * <p>A list should only be modified by one thread at a time, but snapshots and iterators may be
+ *   created and consumed from any thread.</p>
+ */
+public class PersistentList<T extends Comparable<T>> implements OrderedList<T>,
+		ReorderableList<T> {
+
+	private final int DEFAULT_CAPACITY = 10;
+
+	private volatile State<T> state;
+	private int maximumSize;
+	private Map<T, Integer> hashIndex;
+
+	public PersistentList() {
+		this.maximumSize = DEFAULT_CAPACITY;
+		this.state = new State<T>(null, 1, true);
+	}
+
+	public PersistentList(int maximumSize) {
+		this.maximumSize = maximumSize;
+		this.state = new State<T>(null, 1, true);
+	}
+
+	/**
+	 * Create a list whose contents and current position are the same as another list.&nbsp; The
+	 * two lists share their structure, so the copy is made in constant time and later changes to
+	 * either list are not visible in the other.&nbsp; The copy does not have a hash index, even if
+	 * the other list does.
+	 *
+	 * @param other The list to be copied.
+	 */
+	public PersistentList(PersistentList<T> other) {
+		this.state = other.state;
+		this.maximumSize = other.maximumSize;
+	}
+
+	/**
+	 * Obtain an independent copy of the current version of this list in constant time.
+	 *
+	 * @return A list with the same contents, maximum size and current position as this list.
+	 */
+	public PersistentList<T> snapshot() {
+		return new PersistentList<T>(this);
+	}
+
+	/**
+	 * Turn the hash index of this list's items on or off.&nbsp; Building the index takes O(n) time;
+	 * while it is on, <code>contains</code> is O(1) and every insertion and removal updates it.
+	 *
+	 * @param indexed <code>true</code> to maintain the index or <code>false</code> to discard it.
+	 */
+	public void setIndexed(boolean indexed) {
+		if (!indexed) {
+			hashIndex = null;
+		} else if (hashIndex == null) {
+			hashIndex = new HashMap<T, Integer>();
+			for (Iterator<T> it = iterator(); it.hasNext();) {
+				addToIndex(it.next());
+			}
+		}
+	}
+
+	public boolean isIndexed() {
+		return hashIndex != null;
+	}
+
+	public boolean contains(T item) {
+		if (hashIndex != null) {
+			return hashIndex.containsKey(item);
+		}
+		return indexOf(item) > 0;
+	}
+
+	public T getItem() throws OrderedListException {
+		State<T> current = state;
+		if (current.root == null) {
+			throw new OrderedListException("The list is empty.");
+		}
+		return get(current.root, current.position - 1);
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public int getPosition() {
+		return state.position;
+	}
+
+	public int indexOf(T item) {
+		State<T> current = state;
+		if (item == null || current.root == null || (hashIndex != null && !hashIndex.containsKey(item))) {
+			return 0;
+		}
+		int size = size(current.root);
+		if (current.sorted) {
+			return scan(current.root, item, lowerBound(current.root, item), size, true) + 1;
+		}
+		return scan(current.root, item, 0, size, false) + 1;
+	}
+
+	public void insert(T item) throws OrderedListException {
+		checkInsert(item);
+		State<T> current = state;
+		insertAt(current, current.position - 1, item, current.position);
+	}
+
+	public void insert(T item, int position) throws OrderedListException {
+		checkInsert(item);
+		State<T> current = state;
+		int index = Math.max(0, Math.min(position - 1, size(current.root)));
+		insertAt(current, index, item, index + 1);
+	}
+
+	public boolean isEmpty() {
+		return state.root == null;
+	}
+
+	public boolean isFull() {
+		return size() >= maximumSize;
+	}
+
+	public Iterator<T> iterator() {
+		return new SnapshotIterator<T>(state.root);
+	}
+
+	public void nextPosition() throws OrderedListException {
+		State<T> current = state;
+		if (current.root == null) {
+			throw new OrderedListException("The list is empty.");
+		}
+		if (current.position >= size(current.root)) {
+			throw new OrderedListException("There is no next item.");
+		}
+		state = new State<T>(current.root, current.position + 1, current.sorted);
+	}
+
+	public void previousPosition() throws OrderedListException {
+		State<T> current = state;
+		if (current.root == null) {
+			throw new OrderedListException("The list is empty.");
+		}
+		if (current.position <= 1) {
+			throw new OrderedListException("There is no previous item.");
+		}
+		state = new State<T>(current.root, current.position - 1, current.sorted);
+	}
+
+	public void remove() throws OrderedListException {
+		State<T> current = state;
+		if (current.root == null) {
+			throw new OrderedListException("The list is empty.");
+		}
+		removeAt(current, current.position - 1);
+	}
+
+	public void remove(int position) throws OrderedListException {
+		State<T> current = state;
+		if (current.root == null) {
+			throw new OrderedListException("The list is empty.");
+		}
+		if (position < 1 || position > size(current.root)) {
+			throw new OrderedListException("Illegal position: " + position);
+		}
+		removeAt(current, position - 1);
+	}
+
+	public void removeAll() {
+		state = new State<T>(null, 1, true);
+		if (hashIndex != null) {
+			hashIndex.clear();
+		}
+	}
+
+	public boolean seek(T item) {
+		State<T> current = state;
+		if (item == null || current.root == null || (hashIndex != null && !hashIndex.containsKey(item))) {
+			return false;
+		}
+		// Finger search: look forward from the current position first, then wrap around.  When the list
+		// is sorted, equal items form one run that starts at the lower bound, so only that run is scanned.
+		int size = size(current.root);
+		int start = current.position - 1;
+		int from = current.sorted ? lowerBound(current.root, item) : 0;
+		int found = scan(current.root, item, Math.max(from, start), size, current.sorted);
+		if (found < 0 && from < start) {
+			found = scan(current.root, item, from, start, current.sorted);
+		}
+		if (found < 0) {
+			return false;
+		}
+		state = new State<T>(current.root, found + 1, current.sorted);
+		return true;
+	}
+
+	public void setPosition(int position) {
+		State<T> current = state;
+		state = new State<T>(current.root, Math.max(1, Math.min(position, size(current.root))), current.sorted);
+	}
+
+	public int size() {
+		return size(state.root);
+	}
+
+	public void sort() {
+		sort(null);
+	}
+
+	// Sorts as sort() does, ordering the items with the given comparator (null means the natural
+	// ordering).  The comparator must order the items as compareTo() does; InstrumentedOrderedList
+	// uses this to count the comparisons made by the sort.
+	@SuppressWarnings("unchecked")
+	public boolean sort(Comparator<? super T> comparator) {
+		Object[] items = toArray(state.root);
+		// Arrays.sort on objects is a stable merge sort, so equal items keep their relative order.
+		Arrays.sort(items, (Comparator<Object>) comparator);
+		state = new State<T>(PersistentList.<T>build(items, 0, items.length), Math.max(1, items.length), true);
+		return true;
+	}
+
+	// Rebuilds the tree from the reordered items in O(n) time, without positional inserts; the hash
+	// index (if any) is unchanged because the items are the same.
+	public void reorder(UnaryOperator<Object[]> reordering) {
+		Object[] items = reordering.apply(toArray(state.root));
+		state = new State<T>(PersistentList.<T>build(items, 0, items.length), Math.max(1, items.length),
+				items.length <= 1);
+	}
+
+	// Appends items to the end of this list by rebuilding the tree once, in O(size + items.length)
+	// time, instead of making one path-copying insert per item.  The current position is set to the
+	// last item, as insert(T, int) does.  The caller checks that the items fit; if any item is null
+	// the list is not changed.
+	@SuppressWarnings("unchecked")
+	void appendAll(Object[] items) throws OrderedListException {
+		if (items.length == 0) {
+			return;
+		}
+		State<T> current = state;
+		Object[] all = Arrays.copyOf(toArray(current.root), size(current.root) + items.length);
+		boolean sorted = current.sorted;
+		T previous = current.root == null ? null : get(current.root, size(current.root) - 1);
+		for (int i = 0; i < items.length; i++) {
+			T item = (T) items[i];
+			if (item == null) {
+				throw new OrderedListException("Items cannot be null.");
+			}
+			sorted = sorted && (previous == null || previous.compareTo(item) <= 0);
+			previous = item;
+			all[all.length - items.length + i] = item;
+		}
+		state = new State<T>(PersistentList.<T>build(all, 0, all.length), all.length, sorted);
+		if (hashIndex != null) {
+			for (int i = 0; i < items.length; i++) {
+				addToIndex((T) items[i]);
+			}
+		}
+	}
+
+	private void insertAt(State<T> current, int index, T item, int position) {
+		boolean sorted = current.sorted
+				&& (index == 0 || get(current.root, index - 1).compareTo(item) <= 0)
+				&& (index == size(current.root) || item.compareTo(get(current.root, index)) <= 0);
+		state = new State<T>(insertAt(current.root, index, item), position, sorted);
+		if (hashIndex != null) {
+			addToIndex(item);
+		}
+	}
+
+	// The current position is kept unless it is now past the end of the list.
+	private void removeAt(State<T> current, int index) {
+		if (hashIndex != null) {
+			T item = get(current.root, index);
+			int count = hashIndex.get(item);
+			if (count == 1) {
+				hashIndex.remove(item);
+			} else {
+				hashIndex.put(item, count - 1);
+			}
+		}
+		Node<T> root = removeAt(current.root, index);
+		int size = size(root);
+		int position = current.position > size ? Math.max(1, size) : current.position;
+		state = new State<T>(root, position, current.sorted);
+	}
+
+	private void addToIndex(T item) {
+		Integer count = hashIndex.get(item);
+		hashIndex.put(item, count == null ? 1 : count + 1);
+	}
+
+	// The number of items that are less than the given item; only meaningful while the list is sorted.
+	private static <T extends Comparable<T>> int lowerBound(Node<T> node, T item) {
+		int result = 0;
+		while (node != null) {
+			if (node.data.compareTo(item) < 0) {
+				result += size(node.left) + 1;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return result;
+	}
+
+	// Returns the 0-based position of the first item equal to the given item between from (inclusive)
+	// and to (exclusive), or -1.  If withinRun is true the scan stops at the first item that does not
+	// compare equal to the given item.
+	private static <T extends Comparable<T>> int scan(Node<T> root, T item, int from, int to, boolean withinRun) {
+		Iterator<T> it = new SnapshotIterator<T>(root, from);
+		for (int i = from; i < to && it.hasNext(); i++) {
+			T candidate = it.next();
+			if (candidate.equals(item)) {
+				return i;
+			}
+			if (withinRun && candidate.compareTo(item) != 0) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	private void checkInsert(T item) throws OrderedListException {
+		if (item == null) {
+			throw new OrderedListException("Items cannot be null.");
+		}
+		if (isFull()) {
+			throw new OrderedListException("The list is full.");
+		}
+	}
+
+	// ---- persistent AVL tree operations (nodes are never modified once constructed) ----
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static int height(Node<?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static <T> T get(Node<T> node, int index) {
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.right;
+			} else {
+				return node.data;
+			}
+		}
+	}
+
+	private static <T> Node<T> insertAt(Node<T> node, int index, T item) {
+		if (node == null) {
+			return new Node<T>(item, null, null);
+		}
+		int leftSize = size(node.left);
+		if (index <= leftSize) {
+			return balance(node.data, insertAt(node.left, index, item), node.right);
+		}
+		return balance(node.data, node.left, insertAt(node.right, index - leftSize - 1, item));
+	}
+
+	private static <T> Node<T> removeAt(Node<T> node, int index) {
+		int leftSize = size(node.left);
+		if (index < leftSize) {
+			return balance(node.data, removeAt(node.left, index), node.right);
+		}
+		if (index > leftSize) {
+			return balance(node.data, node.left, removeAt(node.right, index - leftSize - 1));
+		}
+		if (node.left == null) {
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+		return balance(get(node.right, 0), node.left, removeAt(node.right, 0));
+	}
+
+	private static <T> Node<T> balance(T data, Node<T> left, Node<T> right) {
+		int leftHeight = height(left);
+		int rightHeight = height(right);
+		if (leftHeight > rightHeight + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return new Node<T>(left.data, left.left, new Node<T>(data, left.right, right));
+			}
+			Node<T> pivot = left.right;
+			return new Node<T>(pivot.data,
+					new Node<T>(left.data, left.left, pivot.left),
+					new Node<T>(data, pivot.right, right));
+		}
+		if (rightHeight > leftHeight + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return new Node<T>(right.data, new Node<T>(data, left, right.left), right.right);
+			}
+			Node<T> pivot = right.left;
+			return new Node<T>(pivot.data,
+					new Node<T>(data, left, pivot.left),
+					new Node<T>(right.data, pivot.right, right.right));
+		}
+		return new Node<T>(data, left, right);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Node<T> build(Object[] items, int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+		int middle = (from + to) >>> 1;
+		return new Node<T>((T) items[middle], PersistentList.<T>build(items, from, middle),
+				PersistentList.<T>build(items, middle + 1, to));
+	}
+
+	private static Object[] toArray(Node<?> node) {
+		Object[] items = new Object[size(node)];
+		int i = 0;
+		for (Iterator<?> it = new SnapshotIterator<Object>(node); it.hasNext();) {
+			items[i++] = it.next();
+		}
+		return items;
+	}
+
+	// One version of the list.  The tree, the current position and the sorted flag are published
+	// together through the single volatile state field, so a snapshot taken on another thread always
+	// sees a position that is valid for its tree and a flag that describes it.
+	private static final class State<E> {
+
+		final Node<E> root;
+		final int position;
+		final boolean sorted;
+
+		State(Node<E> root, int position, boolean sorted) {
+			this.root = root;
+			this.position = position;
+			this.sorted = sorted;
+		}
+	}
+
+	private static final class Node<E> {
+
+		final E data;
+		final Node<E> left;
+		final Node<E> right;
+		final int size;
+		final int height;
+
+		Node(E data, Node<E> left, Node<E> right) {
+			this.data = data;
+			this.left = left;
+			this.right = right;
+			this.size = size(left) + size(right) + 1;
+			this.height = Math.max(height(left), height(right)) + 1;
+		}
+	}
+
+	private static class SnapshotIterator<E> implements Iterator<E> {
+
+		private final Node<?>[] stack;
+		private int depth;
+
+		public SnapshotIterator(Node<?> root) {
+			this.stack = new Node<?>[height(root)];
+			this.depth = 0;
+			pushLeft(root);
+		}
+
+		// Starts the iteration at the given 0-based position in O(log n) time.
+		public SnapshotIterator(Node<?> root, int start) {
+			this.stack = new Node<?>[height(root)];
+			this.depth = 0;
+			Node<?> node = root;
+			while (node != null) {
+				int leftSize = size(node.left);
+				if (start < leftSize) {
+					stack[depth++] = node;
+					node = node.left;
+				} else if (start > leftSize) {
+					start -= leftSize + 1;
+					node = node.right;
+				} else {
+					stack[depth++] = node;
+					break;
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			return depth > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node<?> node = stack[--depth];
+			stack[depth] = null;
+			pushLeft(node.right);
+			return (E) node.data;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void pushLeft(Node<?> node) {
+			while (node != null) {
+				stack[depth++] = node;
+				node = node.left;
+			}
+		}
+	}
+}
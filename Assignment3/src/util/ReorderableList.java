@@ -0,0 +1,34 @@
+package util;
+
+import java.util.Comparator;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>A hook for lists that carry out bulk reorderings of their items themselves.&nbsp;
+ *   <code>OrderedLists</code> hands its sorts to any list that implements it, so that a list can do
+ *   the work in one step (<code>PersistentList</code> rebuilds its tree in O(n)) and a decorator can
+ *   pass it on to the list it wraps, under its lock if it has one (<code>BlockingOrderedList</code>).&nbsp;
+ *   A list that does not implement it is reordered through its <code>OrderedList</code> operations,
+ *   with no guard against other threads.</p>
+ */
+interface ReorderableList<T> {
+
+	/**
+	 * Reorder the items of this list: the reordering is given the list's items and returns the same
+	 * items in their new order, which then replace the list's contents.&nbsp; The current position is
+	 * set to the end of the list as <code>sort()</code> does.
+	 *
+	 * @param reordering Computes the new order of the items.
+	 */
+	public void reorder(UnaryOperator<Object[]> reordering);
+
+	/**
+	 * Sort this list as <code>sort()</code> does, ordering the items with the given comparator if the
+	 * list can use one.
+	 *
+	 * @param comparator A comparator that orders the items as <code>compareTo()</code> does.
+	 * @return <code>true</code> if the list was sorted with the comparator, or <code>false</code>
+	 *         (without sorting) if it cannot use one.
+	 */
+	public boolean sort(Comparator<? super T> comparator);
+}
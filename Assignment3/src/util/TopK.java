@@ -0,0 +1,115 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>A streaming accumulator that keeps the k largest (or k smallest) of the items offered to it,
+ *   using a bounded heap of at most k items.&nbsp; Offering n items takes O(n log k) time and O(k)
+ *   space, so it can be fed directly from an <code>OrderedList</code>'s <code>iterator()</code>
+ *   without sorting or copying the list.</p>
+ */
+public class TopK<T extends Comparable<T>> {
+
+	// The heap grows as items are offered, so a k much larger than the input does not allocate k slots.
+	private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+	private final int k;
+	private final Comparator<T> order;
+	private final PriorityQueue<T> heap;
+
+	// 'order' ranks the items to be kept last, so the heap's head is the worst item kept so far.
+	private TopK(int k, int expectedItems, Comparator<T> order) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative: " + k);
+		}
+		this.k = k;
+		this.order = order;
+		this.heap = new PriorityQueue<T>(Math.max(1, Math.min(k, expectedItems)), order);
+	}
+
+	/**
+	 * Create an accumulator that keeps the k largest items.
+	 *
+	 * @param k The number of items to keep.
+	 * @return An empty accumulator.
+	 */
+	public static <T extends Comparable<T>> TopK<T> largest(int k) {
+		return largest(k, DEFAULT_INITIAL_CAPACITY);
+	}
+
+	// As largest(int), with the heap sized for the number of items expected to be offered.
+	static <T extends Comparable<T>> TopK<T> largest(int k, int expectedItems) {
+		return new TopK<T>(k, expectedItems, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * Create an accumulator that keeps the k smallest items.
+	 *
+	 * @param k The number of items to keep.
+	 * @return An empty accumulator.
+	 */
+	public static <T extends Comparable<T>> TopK<T> smallest(int k) {
+		return smallest(k, DEFAULT_INITIAL_CAPACITY);
+	}
+
+	// As smallest(int), with the heap sized for the number of items expected to be offered.
+	static <T extends Comparable<T>> TopK<T> smallest(int k, int expectedItems) {
+		return new TopK<T>(k, expectedItems, Collections.<T>reverseOrder());
+	}
+
+	/**
+	 * Offer an item to the accumulator.
+	 *
+	 * @param item An item to be considered.
+	 * @return <code>true</code> if the item is currently among those kept.
+	 */
+	public boolean offer(T item) {
+		if (heap.size() < k) {
+			heap.add(item);
+			return true;
+		}
+		if (k == 0 || order.compare(item, heap.peek()) <= 0) {
+			return false;
+		}
+		heap.poll();
+		heap.add(item);
+		return true;
+	}
+
+	/**
+	 * Offer every remaining item of an iterator to the accumulator.
+	 *
+	 * @param iterator The items to be considered.
+	 */
+	public void offerAll(Iterator<? extends T> iterator) {
+		while (iterator.hasNext()) {
+			offer(iterator.next());
+		}
+	}
+
+	/**
+	 * Obtain the number of items currently kept.
+	 *
+	 * @return min(k, number of items offered).
+	 */
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Obtain the items kept so far, best first (largest first for <code>largest</code>, smallest first
+	 * for <code>smallest</code>).&nbsp; The accumulator is not changed.
+	 *
+	 * @return A new list of at most k items.
+	 */
+	public List<T> result() {
+		List<T> result = new ArrayList<T>(heap);
+		Collections.sort(result, Collections.reverseOrder(order));
+		return result;
+	}
+}